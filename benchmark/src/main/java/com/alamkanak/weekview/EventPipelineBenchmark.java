@@ -0,0 +1,175 @@
+package com.alamkanak.weekview;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the steps the week view goes through when the events of a period are loaded:
+ * splitting multi-day events, sorting, grouping the events by day and computing their positions,
+ * as well as the draw commands that are calculated for every frame.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class EventPipelineBenchmark {
+
+    @Param({"100", "1000", "10000", "100000"})
+    public int eventCount;
+
+    /** Average number of events per day, i.e. how densely the events overlap. */
+    @Param({"4", "32", "256"})
+    public int eventsPerDay;
+
+    private List<WeekViewEvent> mEvents;
+    private List<WeekViewEvent> mSortedEvents;
+    private long[][] mStartTimesByDay;
+    private long[][] mEndTimesByDay;
+    private float[] mLefts;
+    private float[] mWidths;
+    private final EventLayoutEngine mLayoutEngine = new SweepLineLayoutEngine();
+    private final WeekViewLayout mLayout = new WeekViewLayout();
+    private final WeekViewLayout mDrawLayout = new WeekViewLayout();
+    private final WeekViewLayout.Viewport mViewport = new WeekViewLayout.Viewport();
+
+    /**
+     * The events in random order, for the benchmarks which need unsorted input. They are shuffled
+     * again before every iteration. A per-invocation setup would distort benchmarks that take
+     * microseconds, so the benchmarks that sort the events in place run once per iteration.
+     */
+    @State(Scope.Thread)
+    public static class ShuffledEvents {
+        private List<WeekViewEvent> mSortedEvents;
+        private List<WeekViewEvent> mOriginalEvents;
+        private final Random mRandom = new Random(42);
+
+        @Setup(Level.Iteration)
+        public void shuffle(EventPipelineBenchmark benchmark) {
+            mSortedEvents = new ArrayList<WeekViewEvent>(benchmark.mSortedEvents);
+            Collections.shuffle(mSortedEvents, mRandom);
+            mOriginalEvents = new ArrayList<WeekViewEvent>(benchmark.mEvents);
+            Collections.shuffle(mOriginalEvents, mRandom);
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        mEvents = SyntheticEvents.generate(eventCount, eventsPerDay, 42);
+        mSortedEvents = SyntheticEvents.splitAndSort(mEvents);
+
+        DayIndex<WeekViewEvent> eventsByDay = new DayIndex<WeekViewEvent>();
+        for (WeekViewEvent event : mSortedEvents)
+            eventsByDay.add(event.getStartEpochDay(), event);
+        mStartTimesByDay = new long[eventsByDay.size()][];
+        mEndTimesByDay = new long[eventsByDay.size()][];
+        int maxEventsOfDay = 0;
+        for (int i = 0; i < eventsByDay.size(); i++) {
+            List<WeekViewEvent> eventsOfDay = eventsByDay.valueAt(i);
+            mStartTimesByDay[i] = new long[eventsOfDay.size()];
+            mEndTimesByDay[i] = new long[eventsOfDay.size()];
+            for (int j = 0; j < eventsOfDay.size(); j++) {
+                mStartTimesByDay[i][j] = eventsOfDay.get(j).getStartTimeInMillis();
+                mEndTimesByDay[i][j] = eventsOfDay.get(j).getEndTimeInMillis();
+            }
+            maxEventsOfDay = Math.max(maxEventsOfDay, eventsOfDay.size());
+        }
+        mLefts = new float[maxEventsOfDay];
+        mWidths = new float[maxEventsOfDay];
+
+        // A week view of 1080 x 1920 pixels showing the first week of the events.
+        mDrawLayout.setEvents(Collections.singletonList(mEvents));
+        mViewport.firstDay = eventsByDay.dayAt(0);
+        mViewport.dayCount = 8;
+        mViewport.startPixel = 100;
+        mViewport.widthPerDay = 130;
+        mViewport.columnGap = 10;
+        mViewport.hourHeight = 150;
+        mViewport.originY = -900;
+        mViewport.eventsTop = 120;
+        mViewport.allDayEventsTop = 40;
+        mViewport.allDayEventHeight = 60;
+        mViewport.eventMarginVertical = 2;
+        mViewport.overlappingEventGap = 2;
+        mViewport.clipLeft = 100;
+        mViewport.width = 1080;
+        mViewport.height = 1920;
+    }
+
+    @Benchmark
+    public void splitEvents(Blackhole blackhole) {
+        for (WeekViewEvent event : mEvents)
+            blackhole.consume(event.splitWeekViewEvents());
+    }
+
+    /**
+     * Sorts the split events. The sort changes its input, so each iteration sorts once.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 20)
+    @Measurement(iterations = 50)
+    public List<WeekViewEvent> sortEvents(ShuffledEvents events) {
+        WeekViewUtil.sortEvents(events.mSortedEvents);
+        return events.mSortedEvents;
+    }
+
+    /**
+     * Groups the sorted and split events by day in a single pass, like the layout does. The events
+     * are copied first to match the legacy grouping, which removes them from a list.
+     */
+    @Benchmark
+    public DayIndex<WeekViewEvent> groupEventsByDay() {
+        List<WeekViewEvent> events = new ArrayList<WeekViewEvent>(mSortedEvents);
+        DayIndex<WeekViewEvent> eventsByDay = new DayIndex<WeekViewEvent>();
+        for (int i = 0; i < events.size(); i++) {
+            WeekViewEvent event = events.get(i);
+            eventsByDay.add(event.getStartEpochDay(), event);
+        }
+        return eventsByDay;
+    }
+
+    @Benchmark
+    public float[] layoutEventsOfEachDay() {
+        for (int i = 0; i < mStartTimesByDay.length; i++)
+            mLayoutEngine.computePositions(mStartTimesByDay[i], mEndTimesByDay[i], mStartTimesByDay[i].length, mLefts, mWidths);
+        return mWidths;
+    }
+
+    /**
+     * Splits, sorts, groups and lays out the events, like the week view does when the events of
+     * its periods change. The layout copies the events before sorting them, so the input stays
+     * shuffled.
+     */
+    @Benchmark
+    public WeekViewLayout.Snapshot layoutEvents(ShuffledEvents events) {
+        return mLayout.buildSnapshot(Collections.singletonList(events.mOriginalEvents));
+    }
+
+    /**
+     * Calculates the draw commands of a week, like the week view does for every frame.
+     */
+    @Benchmark
+    public int computeDrawCommands() {
+        mDrawLayout.computeDrawCommands(mViewport);
+        return mDrawLayout.getCommandCount();
+    }
+}
@@ -0,0 +1,266 @@
+package com.alamkanak.weekview;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import static com.alamkanak.weekview.WeekViewUtil.isSameDay;
+
+/**
+ * The way the week view processed the loaded events before the layout was reworked, copied from
+ * WeekView without the parts that depend on Android. It is the baseline of the benchmarks: the
+ * events are sorted and split, grouped by day by repeatedly removing the first event and every
+ * other event of its day from an ArrayList, and positioned with collision groups and columns.
+ */
+final class LegacyEventPipeline {
+    private static final float ALL_DAY_EVENT_HEIGHT = 100;
+
+    private List<EventRect> mEventRects = new ArrayList<EventRect>();
+
+    static final class EventRect {
+        final WeekViewEvent event;
+        final WeekViewEvent originalEvent;
+        float left;
+        float width;
+        float top;
+        float bottom;
+
+        EventRect(WeekViewEvent event, WeekViewEvent originalEvent) {
+            this.event = event;
+            this.originalEvent = originalEvent;
+        }
+    }
+
+    /**
+     * Lay out the events of the loaded periods, like getMoreEvents did after loading them.
+     * @param eventsOfPeriods The events of each period. The lists are copied, because they used to
+     *                        be sorted in place.
+     * @return The laid out events.
+     */
+    List<EventRect> layoutEvents(List<? extends List<? extends WeekViewEvent>> eventsOfPeriods) {
+        mEventRects.clear();
+        for (List<? extends WeekViewEvent> events : eventsOfPeriods) {
+            sortAndCacheEvents(new ArrayList<WeekViewEvent>(events));
+        }
+
+        // Prepare to calculate positions of each events.
+        List<EventRect> tempEvents = mEventRects;
+        mEventRects = new ArrayList<EventRect>();
+
+        // Iterate through each day with events to calculate the position of the events.
+        while (tempEvents.size() > 0) {
+            ArrayList<EventRect> eventRects = new ArrayList<EventRect>(tempEvents.size());
+
+            // Get first event for a day.
+            EventRect eventRect1 = tempEvents.remove(0);
+            eventRects.add(eventRect1);
+
+            int i = 0;
+            while (i < tempEvents.size()) {
+                // Collect all other events for same day.
+                EventRect eventRect2 = tempEvents.get(i);
+                if (isSameDay(eventRect1.event.getStartTime(), eventRect2.event.getStartTime())) {
+                    tempEvents.remove(i);
+                    eventRects.add(eventRect2);
+                } else {
+                    i++;
+                }
+            }
+            computePositionOfEvents(eventRects);
+        }
+        return mEventRects;
+    }
+
+    /**
+     * Group sorted and split events by day the way getMoreEvents did, without positioning them.
+     * @param tempEvents The events. They are removed from the list.
+     * @return The events of each day.
+     */
+    static List<List<EventRect>> groupEventsByDay(List<EventRect> tempEvents) {
+        List<List<EventRect>> eventsByDay = new ArrayList<List<EventRect>>();
+        while (tempEvents.size() > 0) {
+            ArrayList<EventRect> eventRects = new ArrayList<EventRect>(tempEvents.size());
+            EventRect eventRect1 = tempEvents.remove(0);
+            eventRects.add(eventRect1);
+
+            int i = 0;
+            while (i < tempEvents.size()) {
+                EventRect eventRect2 = tempEvents.get(i);
+                if (isSameDay(eventRect1.event.getStartTime(), eventRect2.event.getStartTime())) {
+                    tempEvents.remove(i);
+                    eventRects.add(eventRect2);
+                } else {
+                    i++;
+                }
+            }
+            eventsByDay.add(eventRects);
+        }
+        return eventsByDay;
+    }
+
+    /**
+     * Position the events of each day, like getMoreEvents did once it had grouped them.
+     * @param eventsByDay The events of each day.
+     * @return The positioned events.
+     */
+    List<EventRect> layoutEventsOfEachDay(List<List<EventRect>> eventsByDay) {
+        mEventRects.clear();
+        for (List<EventRect> eventRects : eventsByDay) {
+            computePositionOfEvents(eventRects);
+        }
+        return mEventRects;
+    }
+
+    /**
+     * Sort and split the events.
+     * @param events The events. They are sorted in place.
+     * @return The event rectangles, one for each day of an event.
+     */
+    static List<EventRect> sortAndSplitEvents(List<? extends WeekViewEvent> events) {
+        LegacyEventPipeline pipeline = new LegacyEventPipeline();
+        pipeline.sortAndCacheEvents(events);
+        return pipeline.mEventRects;
+    }
+
+    private void cacheEvent(WeekViewEvent event) {
+        if(event.getStartTime().compareTo(event.getEndTime()) >= 0)
+            return;
+        List<WeekViewEvent> splitedEvents = event.splitWeekViewEvents();
+        for(WeekViewEvent splitedEvent: splitedEvents){
+            mEventRects.add(new EventRect(splitedEvent, event));
+        }
+    }
+
+    private void sortAndCacheEvents(List<? extends WeekViewEvent> events) {
+        sortEvents(events);
+        for (WeekViewEvent event : events) {
+            cacheEvent(event);
+        }
+    }
+
+    static void sortEvents(List<? extends WeekViewEvent> events) {
+        Collections.sort(events, new Comparator<WeekViewEvent>() {
+            @Override
+            public int compare(WeekViewEvent event1, WeekViewEvent event2) {
+                long start1 = event1.getStartTime().getTimeInMillis();
+                long start2 = event2.getStartTime().getTimeInMillis();
+                int comparator = start1 > start2 ? 1 : (start1 < start2 ? -1 : 0);
+                if (comparator == 0) {
+                    long end1 = event1.getEndTime().getTimeInMillis();
+                    long end2 = event2.getEndTime().getTimeInMillis();
+                    comparator = end1 > end2 ? 1 : (end1 < end2 ? -1 : 0);
+                }
+                return comparator;
+            }
+        });
+    }
+
+    /**
+     * Calculates the left and right positions of each events. This comes handy specially if events
+     * are overlapping.
+     * @param eventRects The events along with their wrapper class.
+     */
+    void computePositionOfEvents(List<EventRect> eventRects) {
+        // Make "collision groups" for all events that collide with others.
+        List<List<EventRect>> collisionGroups = new ArrayList<List<EventRect>>();
+        for (EventRect eventRect : eventRects) {
+            boolean isPlaced = false;
+
+            outerLoop:
+            for (List<EventRect> collisionGroup : collisionGroups) {
+                for (EventRect groupEvent : collisionGroup) {
+                    if (isEventsCollide(groupEvent.event, eventRect.event) && groupEvent.event.isAllDay() == eventRect.event.isAllDay()) {
+                        collisionGroup.add(eventRect);
+                        isPlaced = true;
+                        break outerLoop;
+                    }
+                }
+            }
+
+            if (!isPlaced) {
+                List<EventRect> newGroup = new ArrayList<EventRect>();
+                newGroup.add(eventRect);
+                collisionGroups.add(newGroup);
+            }
+        }
+
+        for (List<EventRect> collisionGroup : collisionGroups) {
+            expandEventsToMaxWidth(collisionGroup);
+        }
+    }
+
+    /**
+     * Expands all the events to maximum possible width. The events will try to occupy maximum
+     * space available horizontally.
+     * @param collisionGroup The group of events which overlap with each other.
+     */
+    private void expandEventsToMaxWidth(List<EventRect> collisionGroup) {
+        // Expand the events to maximum possible width.
+        List<List<EventRect>> columns = new ArrayList<List<EventRect>>();
+        columns.add(new ArrayList<EventRect>());
+        for (EventRect eventRect : collisionGroup) {
+            boolean isPlaced = false;
+            for (List<EventRect> column : columns) {
+                if (column.size() == 0) {
+                    column.add(eventRect);
+                    isPlaced = true;
+                }
+                else if (!isEventsCollide(eventRect.event, column.get(column.size()-1).event)) {
+                    column.add(eventRect);
+                    isPlaced = true;
+                    break;
+                }
+            }
+            if (!isPlaced) {
+                List<EventRect> newColumn = new ArrayList<EventRect>();
+                newColumn.add(eventRect);
+                columns.add(newColumn);
+            }
+        }
+
+
+        // Calculate left and right position for all the events.
+        // Get the maxRowCount by looking in all columns.
+        int maxRowCount = 0;
+        for (List<EventRect> column : columns){
+            maxRowCount = Math.max(maxRowCount, column.size());
+        }
+        for (int i = 0; i < maxRowCount; i++) {
+            // Set the left and right values of the event.
+            float j = 0;
+            for (List<EventRect> column : columns) {
+                if (column.size() >= i+1) {
+                    EventRect eventRect = column.get(i);
+                    eventRect.width = 1f / columns.size();
+                    eventRect.left = j / columns.size();
+                    if(!eventRect.event.isAllDay()) {
+                        eventRect.top = eventRect.event.getStartTime().get(Calendar.HOUR_OF_DAY) * 60 + eventRect.event.getStartTime().get(Calendar.MINUTE);
+                        eventRect.bottom = eventRect.event.getEndTime().get(Calendar.HOUR_OF_DAY) * 60 + eventRect.event.getEndTime().get(Calendar.MINUTE);
+                    }
+                    else{
+                        eventRect.top = 0;
+                        eventRect.bottom = ALL_DAY_EVENT_HEIGHT;
+                    }
+                    mEventRects.add(eventRect);
+                }
+                j++;
+            }
+        }
+    }
+
+    /**
+     * Checks if two events overlap.
+     * @param event1 The first event.
+     * @param event2 The second event.
+     * @return true if the events overlap.
+     */
+    private static boolean isEventsCollide(WeekViewEvent event1, WeekViewEvent event2) {
+        long start1 = event1.getStartTime().getTimeInMillis();
+        long end1 = event1.getEndTime().getTimeInMillis();
+        long start2 = event2.getStartTime().getTimeInMillis();
+        long end2 = event2.getEndTime().getTimeInMillis();
+        return !((start1 >= end2) || (end1 <= start2));
+    }
+}
@@ -0,0 +1,113 @@
+package com.alamkanak.weekview;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the event processing of the week view before it was reworked, see
+ * {@link LegacyEventPipeline}. Compare the results with the benchmarks of the same name in
+ * {@link EventPipelineBenchmark}, e.g. with {@code -p eventCount=10000 layoutEvents}. The legacy
+ * grouping is quadratic, so the largest event count is left out.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LegacyEventPipelineBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    public int eventCount;
+
+    /** Average number of events per day, i.e. how densely the events overlap. */
+    @Param({"4", "32", "256"})
+    public int eventsPerDay;
+
+    private List<WeekViewEvent> mEvents;
+    private List<WeekViewEvent> mSortedEvents;
+    private List<LegacyEventPipeline.EventRect> mSortedEventRects;
+    private List<List<LegacyEventPipeline.EventRect>> mEventRectsByDay;
+    private final LegacyEventPipeline mPipeline = new LegacyEventPipeline();
+
+    /**
+     * The split events in random order, shuffled again before every iteration, see
+     * {@link EventPipelineBenchmark.ShuffledEvents}.
+     */
+    @State(Scope.Thread)
+    public static class ShuffledEvents {
+        private List<WeekViewEvent> mSortedEvents;
+        private final Random mRandom = new Random(42);
+
+        @Setup(Level.Iteration)
+        public void shuffle(LegacyEventPipelineBenchmark benchmark) {
+            mSortedEvents = new ArrayList<WeekViewEvent>(benchmark.mSortedEvents);
+            Collections.shuffle(mSortedEvents, mRandom);
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        mEvents = SyntheticEvents.generate(eventCount, eventsPerDay, 42);
+        mSortedEvents = SyntheticEvents.splitAndSort(mEvents);
+        mSortedEventRects = LegacyEventPipeline.sortAndSplitEvents(new ArrayList<WeekViewEvent>(mEvents));
+        mEventRectsByDay = LegacyEventPipeline.groupEventsByDay(new ArrayList<LegacyEventPipeline.EventRect>(mSortedEventRects));
+    }
+
+    /**
+     * Sorts the split events with the comparator that read the times from the calendars. The sort
+     * changes its input, so each iteration sorts once.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 20)
+    @Measurement(iterations = 50)
+    public List<WeekViewEvent> sortEvents(ShuffledEvents events) {
+        LegacyEventPipeline.sortEvents(events.mSortedEvents);
+        return events.mSortedEvents;
+    }
+
+    /**
+     * Sorts, splits, groups and lays out the events, like the week view did whenever it loaded the
+     * events of its periods.
+     */
+    @Benchmark
+    public List<LegacyEventPipeline.EventRect> layoutEvents() {
+        return mPipeline.layoutEvents(Collections.singletonList(mEvents));
+    }
+
+    /**
+     * Positions the events of each day with computePositionOfEvents and expandEventsToMaxWidth,
+     * which compare the calendars of the events with each other. The new layout engine works on
+     * arrays of times instead, see {@link EventPipelineBenchmark#layoutEventsOfEachDay()}.
+     */
+    @Benchmark
+    public List<LegacyEventPipeline.EventRect> layoutEventsOfEachDay() {
+        return mPipeline.layoutEventsOfEachDay(mEventRectsByDay);
+    }
+
+    /**
+     * Groups the sorted and split events by day with remove(0) and isSameDay. The events are
+     * copied first, because the grouping removes them from the list.
+     */
+    @Benchmark
+    public List<List<LegacyEventPipeline.EventRect>> groupEventsByDay() {
+        return LegacyEventPipeline.groupEventsByDay(new ArrayList<LegacyEventPipeline.EventRect>(mSortedEventRects));
+    }
+}
@@ -0,0 +1,53 @@
+package com.alamkanak.weekview;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Calendar;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the conversion of a date to a period index, which the week view does for the first
+ * visible day of every frame.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class PeriodIndexBenchmark {
+
+    private MonthLoader mMonthLoader;
+    private Calendar mDay;
+
+    @Setup
+    public void setUp() {
+        mMonthLoader = new MonthLoader(new MonthLoader.MonthChangeListener() {
+            @Override
+            public List<? extends WeekViewEvent> onMonthChange(int newYear, int newMonth) {
+                return null;
+            }
+        });
+        mDay = Calendar.getInstance();
+    }
+
+    @Benchmark
+    public double monthPeriodIndex() {
+        return mMonthLoader.toWeekViewPeriodIndex(mDay);
+    }
+
+    @Benchmark
+    public int epochDay() {
+        return WeekViewUtil.getEpochDay(mDay);
+    }
+}
@@ -0,0 +1,61 @@
+package com.alamkanak.weekview;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates reproducible sets of events for the benchmarks.
+ */
+final class SyntheticEvents {
+    /** Share of the events that span more than one day. */
+    static final double MULTI_DAY_RATIO = 0.02;
+
+    private SyntheticEvents() {
+    }
+
+    /**
+     * Generate events starting on 1 January 2015.
+     * @param eventCount The number of events.
+     * @param eventsPerDay The average number of events per day. The higher the value, the more the
+     *                     events overlap each other.
+     * @param seed The seed of the random generator.
+     * @return The events in random order.
+     */
+    static List<WeekViewEvent> generate(int eventCount, int eventsPerDay, long seed) {
+        Random random = new Random(seed);
+        int dayCount = Math.max(1, (eventCount + eventsPerDay - 1) / eventsPerDay);
+        List<WeekViewEvent> events = new ArrayList<WeekViewEvent>(eventCount);
+        for (int i = 0; i < eventCount; i++) {
+            Calendar startTime = Calendar.getInstance();
+            startTime.clear();
+            startTime.set(2015, Calendar.JANUARY, 1);
+            startTime.add(Calendar.DATE, random.nextInt(dayCount));
+            startTime.add(Calendar.MINUTE, random.nextInt(24 * 4) * 15);
+
+            Calendar endTime = (Calendar) startTime.clone();
+            if (random.nextDouble() < MULTI_DAY_RATIO)
+                endTime.add(Calendar.DATE, 1 + random.nextInt(3));
+            else
+                endTime.add(Calendar.MINUTE, 15 + random.nextInt(16) * 15);
+
+            WeekViewEvent event = new WeekViewEvent(i, "Event " + i, startTime, endTime);
+            events.add(event);
+        }
+        return events;
+    }
+
+    /**
+     * Split the events by day and sort them, the same way the week view does before laying them out.
+     * @param events The events.
+     * @return The sorted events of at most one day each.
+     */
+    static List<WeekViewEvent> splitAndSort(List<WeekViewEvent> events) {
+        List<WeekViewEvent> splitEvents = new ArrayList<WeekViewEvent>(events.size());
+        for (WeekViewEvent event : events)
+            splitEvents.addAll(event.splitWeekViewEvents());
+        WeekViewUtil.sortEvents(splitEvents);
+        return splitEvents;
+    }
+}
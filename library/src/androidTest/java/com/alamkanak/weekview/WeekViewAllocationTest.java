@@ -0,0 +1,167 @@
+package com.alamkanak.weekview;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.os.Debug;
+import android.os.SystemClock;
+import android.test.InstrumentationTestCase;
+import android.view.MotionEvent;
+import android.view.View;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+
+/**
+ * Checks that drawing the week view does not allocate once scrolling is stable. The view is
+ * scrolled by a scripted drag twice: the first drag loads and lays out everything that is drawn,
+ * and the frames of the second drag are counted.
+ */
+public class WeekViewAllocationTest extends InstrumentationTestCase {
+    private static final int WIDTH = 1080;
+    private static final int HEIGHT = 1920;
+    private static final int STEPS = 30;
+    private static final float STEP_DISTANCE = 20;
+    private static final int DAY_TILE_CACHE_SIZE = 32 * 1024 * 1024;
+
+    private int mAllocCount;
+    private int mFrameCount;
+    private boolean mAreDayTilesDrawn;
+    private boolean mAreGridPicturesDrawn;
+
+    public void testScrollingDrawsWithoutAllocating() {
+        getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                WeekView weekView = createWeekView();
+                Bitmap bitmap = Bitmap.createBitmap(WIDTH, HEIGHT, Bitmap.Config.ARGB_8888);
+                Canvas canvas = new Canvas(bitmap);
+                weekView.draw(canvas);
+
+                // Warm up: load the events and create the labels and text layouts.
+                drag(weekView, canvas, 0, STEP_DISTANCE, false);
+
+                mAllocCount = 0;
+                mFrameCount = 0;
+                Debug.resetThreadAllocCount();
+                drag(weekView, canvas, 0, STEP_DISTANCE, true);
+                bitmap.recycle();
+            }
+        });
+        assertEquals(STEPS * 2, mFrameCount);
+        assertEquals("Objects allocated while drawing " + mFrameCount + " frames", 0, mAllocCount);
+    }
+
+    /**
+     * Scroll horizontally with day tiles enabled on a software canvas, so the fully visible days
+     * are copied from their tiles and the grid is drawn from its pictures. The tiles and pictures
+     * of the days that are scrolled over are created by the first drag and reused by the second.
+     */
+    public void testHorizontalScrollingDrawsWithoutAllocating() {
+        getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                WeekView weekView = createWeekView();
+                weekView.setDayTileCacheSize(DAY_TILE_CACHE_SIZE);
+                Bitmap bitmap = Bitmap.createBitmap(WIDTH, HEIGHT, Bitmap.Config.ARGB_8888);
+                Canvas canvas = new Canvas(bitmap);
+                weekView.draw(canvas);
+
+                // Warm up: also draw the tiles of the days that are scrolled over.
+                drag(weekView, canvas, STEP_DISTANCE, 0, false);
+
+                mAllocCount = 0;
+                mFrameCount = 0;
+                Debug.resetThreadAllocCount();
+                drag(weekView, canvas, STEP_DISTANCE, 0, true);
+                mAreDayTilesDrawn = weekView.areDayTilesDrawn();
+                mAreGridPicturesDrawn = weekView.areGridPicturesDrawn();
+                bitmap.recycle();
+            }
+        });
+        assertTrue("Day tiles were not drawn", mAreDayTilesDrawn);
+        assertTrue("Grid pictures were not drawn", mAreGridPicturesDrawn);
+        assertEquals(STEPS * 2, mFrameCount);
+        assertEquals("Objects allocated while drawing " + mFrameCount + " frames", 0, mAllocCount);
+    }
+
+    private WeekView createWeekView() {
+        WeekView weekView = new WeekView(getInstrumentation().getTargetContext());
+        weekView.setShowNowLine(true);
+        weekView.setMonthChangeListener(new MonthLoader.MonthChangeListener() {
+            @Override
+            public List<? extends WeekViewEvent> onMonthChange(int newYear, int newMonth) {
+                return createEvents(newYear, newMonth);
+            }
+        });
+        weekView.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+        weekView.layout(0, 0, WIDTH, HEIGHT);
+        return weekView;
+    }
+
+    /**
+     * Create a few overlapping events on every day of a month.
+     */
+    private static List<WeekViewEvent> createEvents(int year, int month) {
+        List<WeekViewEvent> events = new ArrayList<WeekViewEvent>();
+        Calendar day = Calendar.getInstance();
+        day.clear();
+        day.set(year, month - 1, 1);
+        int id = 0;
+        while (day.get(Calendar.MONTH) == month - 1) {
+            for (int hour = 6; hour < 20; hour += 2) {
+                Calendar startTime = (Calendar) day.clone();
+                startTime.set(Calendar.HOUR_OF_DAY, hour);
+                Calendar endTime = (Calendar) startTime.clone();
+                endTime.add(Calendar.MINUTE, 150);
+                WeekViewEvent event = new WeekViewEvent(id++, "Event " + id, startTime, endTime);
+                event.setColor(0xff59dbe0);
+                events.add(event);
+            }
+            day.add(Calendar.DATE, 1);
+        }
+        return events;
+    }
+
+    /**
+     * Drag the view one way and back, drawing a frame after every move.
+     * @param stepX The horizontal distance of each move.
+     * @param stepY The vertical distance of each move.
+     * @param count Whether to count the allocations of the frames.
+     */
+    private void drag(WeekView weekView, Canvas canvas, float stepX, float stepY, boolean count) {
+        long downTime = SystemClock.uptimeMillis();
+        float x = WIDTH / 2;
+        float y = HEIGHT / 2;
+        dispatch(weekView, downTime, downTime, MotionEvent.ACTION_DOWN, x, y);
+        long eventTime = downTime;
+        for (int i = 0; i < STEPS * 2; i++) {
+            float direction = i < STEPS ? -1 : 1;
+            x += direction * stepX;
+            y += direction * stepY;
+
+            // Move slowly, so that releasing the view does not start a fling.
+            eventTime += 200;
+            dispatch(weekView, downTime, eventTime, MotionEvent.ACTION_MOVE, x, y);
+            if (count) {
+                Debug.startAllocCounting();
+                weekView.draw(canvas);
+                Debug.stopAllocCounting();
+                mFrameCount++;
+            }
+            else {
+                weekView.draw(canvas);
+            }
+        }
+        dispatch(weekView, downTime, eventTime + 200, MotionEvent.ACTION_UP, x, y);
+        if (count)
+            mAllocCount = Debug.getThreadAllocCount();
+    }
+
+    private static void dispatch(WeekView weekView, long downTime, long eventTime, int action, float x, float y) {
+        MotionEvent event = MotionEvent.obtain(downTime, eventTime, action, x, y, 0);
+        weekView.onTouchEvent(event);
+        event.recycle();
+    }
+}
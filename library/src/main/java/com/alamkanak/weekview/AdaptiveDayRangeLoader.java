@@ -0,0 +1,319 @@
+package com.alamkanak.weekview;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+
+import static com.alamkanak.weekview.WeekViewUtil.*;
+
+/**
+ * Loads the events in periods of days whose length adapts to the calendar. The loader measures how
+ * many events each load returns and how long it takes, and picks the number of days of the
+ * following periods so that a load returns about {@link #getTargetEventCount()} events within
+ * {@link #getLatencyBudget()} milliseconds. Sparse calendars get long periods and few round-trips,
+ * dense calendars get short periods.
+ * <p>
+ * Periods that have been handed out to the week view never change, because the view caches the
+ * events by period index. A new length only applies to the periods that are created afterwards,
+ * when the user scrolls beyond the known periods. That keeps the period indices monotonic.
+ * </p>
+ * <p>
+ * A period is never shorter than the number of days that the week view shows, because the week
+ * view only loads the period of the first visible day and one period on each side of it. A
+ * {@link WeekView} keeps that number up to date, see {@link #setVisibleDayCount(int)}. If more
+ * days are shown than the periods that have been handed out have, all periods are created again.
+ * </p>
+ * <p>
+ * The loader may be called from a background thread (see {@link WeekView#setAsyncLoadingEnabled}).
+ * </p>
+ */
+public class AdaptiveDayRangeLoader implements WeekViewLoader {
+
+    // Indices start in the middle of the positive range, so that they stay positive however far
+    // the user scrolls back. The week view treats negative indices as "nothing fetched yet".
+    private static final int FIRST_PERIOD_INDEX = 1 << 30;
+    // The weight of the latest load in the averages.
+    private static final double SMOOTHING = 0.3;
+
+    private final List<Segment> mSegments = new ArrayList<Segment>();
+    private DayRangeLoader.DayRangeChangeListener mOnDayRangeChangeListener;
+    private int mDayCount;
+    private int mMinDayCount = 1;
+    private int mMaxDayCount = 62;
+    private int mVisibleDayCount = 1;
+    private int mTargetEventCount = 250;
+    private long mLatencyBudget = 300;
+    private double mEventsPerDay = -1;
+    private double mMillisPerDay = -1;
+
+    /**
+     * @param initialDayCount The number of days of the first periods, until the first loads have
+     *                        been measured.
+     * @param listener The listener that provides the events of a period.
+     */
+    public AdaptiveDayRangeLoader(int initialDayCount, DayRangeLoader.DayRangeChangeListener listener) {
+        if (initialDayCount < 1)
+            throw new IllegalArgumentException("initialDayCount must be at least 1");
+        mDayCount = initialDayCount;
+        mMaxDayCount = Math.max(mMaxDayCount, initialDayCount);
+        mOnDayRangeChangeListener = listener;
+    }
+
+    @Override
+    public double toWeekViewPeriodIndex(Calendar instance) {
+        int day = getEpochDay(instance);
+        synchronized (this) {
+            if (mSegments.isEmpty())
+                mSegments.add(new Segment(day, FIRST_PERIOD_INDEX, mDayCount, 1));
+
+            Segment first = mSegments.get(0);
+            if (day < first.firstDay)
+                extendBackward((first.firstDay - day + mDayCount - 1) / mDayCount);
+            Segment last = mSegments.get(mSegments.size() - 1);
+            if (day >= last.getEndDay())
+                extendForward((day - last.getEndDay()) / mDayCount + 1);
+
+            for (int i = 0; i < mSegments.size(); i++) {
+                Segment segment = mSegments.get(i);
+                if (day < segment.getEndDay()) {
+                    int days = day - segment.firstDay;
+                    int period = days / segment.dayCount;
+                    return segment.firstIndex + period + (days - period * segment.dayCount) / (double) segment.dayCount;
+                }
+            }
+        }
+        throw new IllegalStateException("The periods do not cover the day");
+    }
+
+    @Override
+    public List<? extends WeekViewEvent> onLoad(int periodIndex) {
+        int firstDay;
+        int dayCount;
+        DayRangeLoader.DayRangeChangeListener listener;
+        synchronized (this) {
+            listener = mOnDayRangeChangeListener;
+            Segment segment = getSegment(periodIndex);
+            dayCount = segment.dayCount;
+            firstDay = segment.firstDay + (periodIndex - segment.firstIndex) * dayCount;
+        }
+
+        Calendar firstDayCalendar = getDay(firstDay);
+        Calendar lastDayCalendar = (Calendar) firstDayCalendar.clone();
+        lastDayCalendar.add(Calendar.DATE, dayCount - 1);
+        long startTime = System.nanoTime();
+        List<? extends WeekViewEvent> events = listener.onDayRangeChange(firstDayCalendar, lastDayCalendar);
+        long latency = (System.nanoTime() - startTime) / 1000000;
+
+        adapt(events == null ? 0 : events.size(), latency, dayCount);
+        return events;
+    }
+
+    /**
+     * Update the averages with a measured load and choose the number of days of new periods.
+     * @param eventCount The number of events that were loaded.
+     * @param latency The duration of the load in milliseconds.
+     * @param dayCount The number of days of the loaded period.
+     */
+    private synchronized void adapt(int eventCount, long latency, int dayCount) {
+        mEventsPerDay = average(mEventsPerDay, eventCount / (double) dayCount);
+        mMillisPerDay = average(mMillisPerDay, latency / (double) dayCount);
+
+        // Both bounds are infinite while nothing has been loaded or measured.
+        double days = Math.min(mTargetEventCount / mEventsPerDay, mLatencyBudget / mMillisPerDay);
+
+        // Change by at most a factor of two at a time, so that one outlier does not swing the
+        // period length from one extreme to the other.
+        days = Math.max(days, mDayCount / 2.0);
+        days = Math.min(days, mDayCount * 2.0);
+        mDayCount = clampDayCount(Math.round(days));
+    }
+
+    /**
+     * Keep a number of days within the bounds of a period length.
+     * @param days The number of days.
+     * @return The number of days, at least the minimum and the number of visible days, and at most
+     * the maximum unless more days are visible.
+     */
+    private int clampDayCount(long days) {
+        int minDayCount = Math.max(mMinDayCount, mVisibleDayCount);
+        int maxDayCount = Math.max(mMaxDayCount, minDayCount);
+        return (int) Math.max(minDayCount, Math.min(maxDayCount, days));
+    }
+
+    private static double average(double average, double value) {
+        return average < 0 ? value : average + SMOOTHING * (value - average);
+    }
+
+    /**
+     * Get the segment that contains a period, creating the periods up to it if necessary.
+     * @param periodIndex The period.
+     * @return The segment of the period.
+     */
+    private Segment getSegment(int periodIndex) {
+        if (mSegments.isEmpty())
+            mSegments.add(new Segment(getEpochDay(today()), periodIndex, mDayCount, 1));
+
+        Segment first = mSegments.get(0);
+        if (periodIndex < first.firstIndex)
+            extendBackward(first.firstIndex - periodIndex);
+        Segment last = mSegments.get(mSegments.size() - 1);
+        if (periodIndex >= last.getEndIndex())
+            extendForward(periodIndex - last.getEndIndex() + 1);
+
+        for (int i = 0; i < mSegments.size(); i++) {
+            Segment segment = mSegments.get(i);
+            if (periodIndex < segment.getEndIndex())
+                return segment;
+        }
+        throw new IllegalStateException("The periods do not cover the period index");
+    }
+
+    /**
+     * Add periods of the current length before the first period.
+     * @param periodCount The number of periods to add.
+     */
+    private void extendBackward(int periodCount) {
+        Segment first = mSegments.get(0);
+        if (first.dayCount == mDayCount) {
+            first.firstDay -= periodCount * mDayCount;
+            first.firstIndex -= periodCount;
+            first.periodCount += periodCount;
+        }
+        else {
+            mSegments.add(0, new Segment(first.firstDay - periodCount * mDayCount, first.firstIndex - periodCount, mDayCount, periodCount));
+        }
+    }
+
+    /**
+     * Add periods of the current length after the last period.
+     * @param periodCount The number of periods to add.
+     */
+    private void extendForward(int periodCount) {
+        Segment last = mSegments.get(mSegments.size() - 1);
+        if (last.dayCount == mDayCount)
+            last.periodCount += periodCount;
+        else
+            mSegments.add(new Segment(last.getEndDay(), last.getEndIndex(), mDayCount, periodCount));
+    }
+
+    private static Calendar getDay(int epochDay) {
+        Calendar day = Calendar.getInstance();
+        day.clear();
+        day.set(1970, Calendar.JANUARY, 1);
+        day.add(Calendar.DATE, epochDay);
+        return day;
+    }
+
+    /**
+     * @return The number of days of the periods that are created next.
+     */
+    public synchronized int getDayCount() {
+        return mDayCount;
+    }
+
+    public synchronized int getMinDayCount() {
+        return mMinDayCount;
+    }
+
+    public synchronized int getMaxDayCount() {
+        return mMaxDayCount;
+    }
+
+    /**
+     * Set the bounds of the number of days of a period. The periods are longer than the maximum if
+     * the week view shows more days.
+     * @param minDayCount The minimum number of days. Must be at least 1.
+     * @param maxDayCount The maximum number of days. Must not be less than the minimum.
+     */
+    public synchronized void setDayCountRange(int minDayCount, int maxDayCount) {
+        if (minDayCount < 1 || maxDayCount < minDayCount)
+            throw new IllegalArgumentException("Invalid day count range");
+        mMinDayCount = minDayCount;
+        mMaxDayCount = maxDayCount;
+        mDayCount = clampDayCount(mDayCount);
+    }
+
+    public synchronized int getVisibleDayCount() {
+        return mVisibleDayCount;
+    }
+
+    /**
+     * Set the number of days that the week view shows. No period is shorter than that from now on.
+     * If periods that are shorter have been handed out already, all periods are dropped and created
+     * again, which changes what the period indices mean.
+     * @param visibleDayCount The number of visible days. Must be at least 1.
+     * @return True if the periods have been dropped, so the events have to be loaded again.
+     */
+    public synchronized boolean setVisibleDayCount(int visibleDayCount) {
+        if (visibleDayCount < 1)
+            throw new IllegalArgumentException("visibleDayCount must be at least 1");
+        mVisibleDayCount = visibleDayCount;
+        mDayCount = clampDayCount(mDayCount);
+        for (int i = 0; i < mSegments.size(); i++) {
+            if (mSegments.get(i).dayCount < visibleDayCount) {
+                mSegments.clear();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public synchronized int getTargetEventCount() {
+        return mTargetEventCount;
+    }
+
+    /**
+     * @param targetEventCount The number of events that one load should return.
+     */
+    public synchronized void setTargetEventCount(int targetEventCount) {
+        if (targetEventCount < 1)
+            throw new IllegalArgumentException("targetEventCount must be at least 1");
+        mTargetEventCount = targetEventCount;
+    }
+
+    public synchronized long getLatencyBudget() {
+        return mLatencyBudget;
+    }
+
+    /**
+     * @param latencyBudget The number of milliseconds that one load should take at most.
+     */
+    public synchronized void setLatencyBudget(long latencyBudget) {
+        if (latencyBudget < 1)
+            throw new IllegalArgumentException("latencyBudget must be at least 1");
+        mLatencyBudget = latencyBudget;
+    }
+
+    public synchronized DayRangeLoader.DayRangeChangeListener getOnDayRangeChangeListener() {
+        return mOnDayRangeChangeListener;
+    }
+
+    public synchronized void setOnDayRangeChangeListener(DayRangeLoader.DayRangeChangeListener onDayRangeChangeListener) {
+        this.mOnDayRangeChangeListener = onDayRangeChangeListener;
+    }
+
+    /**
+     * Consecutive periods of the same length.
+     */
+    private static class Segment {
+        int firstDay;
+        int firstIndex;
+        final int dayCount;
+        int periodCount;
+
+        Segment(int firstDay, int firstIndex, int dayCount, int periodCount) {
+            this.firstDay = firstDay;
+            this.firstIndex = firstIndex;
+            this.dayCount = dayCount;
+            this.periodCount = periodCount;
+        }
+
+        int getEndDay() {
+            return firstDay + periodCount * dayCount;
+        }
+
+        int getEndIndex() {
+            return firstIndex + periodCount;
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package com.alamkanak.weekview;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.SparseArray;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Calls {@link WeekViewLoader#onLoad(int)} on a background executor and delivers the loaded events
+ * on the UI thread. There is at most one load per period at a time. Loads of periods that are not
+ * needed anymore can be cancelled; their results are never delivered.
+ */
+class AsyncEventLoader {
+
+    interface Callback {
+        /**
+         * Called on the UI thread when the events of a period have been loaded.
+         * @param periodIndex The loaded period.
+         * @param events The events of the period.
+         * @param durationNanos The time the loader took in nanoseconds.
+         */
+        void onPeriodLoaded(int periodIndex, List<? extends WeekViewEvent> events, long durationNanos);
+    }
+
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final SparseArray<PeriodLoad> mPendingLoads = new SparseArray<PeriodLoad>();
+    private final Callback mCallback;
+    private ExecutorService mExecutor;
+    private boolean mOwnsExecutor;
+
+    AsyncEventLoader(Callback callback) {
+        mCallback = callback;
+    }
+
+    /**
+     * Set the executor on which the loader is called. If null, a single background thread is used,
+     * which is created when it is needed.
+     * An executor passed in here is never shut down by this class.
+     * @param executor The executor.
+     */
+    void setExecutor(ExecutorService executor) {
+        shutdown();
+        mExecutor = executor;
+        mOwnsExecutor = false;
+    }
+
+    /**
+     * Get the executor set with {@link #setExecutor(ExecutorService)}.
+     * @return The executor or null if the default background thread is used.
+     */
+    ExecutorService getExecutor() {
+        return mOwnsExecutor ? null : mExecutor;
+    }
+
+    /**
+     * Start loading the events of a period unless they are already being loaded.
+     * @param loader The loader to call.
+     * @param periodIndex The period to load.
+     */
+    void load(WeekViewLoader loader, int periodIndex) {
+        if (mPendingLoads.get(periodIndex) != null)
+            return;
+        if (mExecutor == null) {
+            // The thread stops when it is idle, so a view that is gone does not keep it alive.
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 1, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "WeekView loader");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            executor.allowCoreThreadTimeOut(true);
+            mExecutor = executor;
+            mOwnsExecutor = true;
+        }
+        PeriodLoad load = new PeriodLoad(loader, periodIndex);
+        mPendingLoads.put(periodIndex, load);
+        load.future = mExecutor.submit(load);
+    }
+
+    /**
+     * Check whether the events of a period are being loaded.
+     * @param periodIndex The period.
+     * @return True if the load has been started but its result has not been delivered yet.
+     */
+    boolean isLoading(int periodIndex) {
+        return mPendingLoads.get(periodIndex) != null;
+    }
+
+    /**
+     * Cancel the loads of all periods that are in neither of the given ranges.
+     * @param firstPeriodIndex The first period of the first range to keep loading.
+     * @param lastPeriodIndex The last period of the first range to keep loading.
+     * @param otherFirstPeriodIndex The first period of the second range to keep loading.
+     * @param otherLastPeriodIndex The last period of the second range to keep loading.
+     */
+    void cancelOutside(int firstPeriodIndex, int lastPeriodIndex, int otherFirstPeriodIndex, int otherLastPeriodIndex) {
+        for (int i = mPendingLoads.size() - 1; i >= 0; i--) {
+            int periodIndex = mPendingLoads.keyAt(i);
+            if ((periodIndex < firstPeriodIndex || periodIndex > lastPeriodIndex) &&
+                    (periodIndex < otherFirstPeriodIndex || periodIndex > otherLastPeriodIndex)) {
+                mPendingLoads.valueAt(i).cancel();
+                mPendingLoads.removeAt(i);
+            }
+        }
+    }
+
+    /**
+     * Count the pending loads of the periods that are not within the given range.
+     * @param firstPeriodIndex The first period not to count.
+     * @param lastPeriodIndex The last period not to count.
+     * @return The number of pending loads outside the range.
+     */
+    int getLoadCountOutside(int firstPeriodIndex, int lastPeriodIndex) {
+        int count = 0;
+        for (int i = 0; i < mPendingLoads.size(); i++) {
+            int periodIndex = mPendingLoads.keyAt(i);
+            if (periodIndex < firstPeriodIndex || periodIndex > lastPeriodIndex)
+                count++;
+        }
+        return count;
+    }
+
+    /**
+     * Cancel all pending loads.
+     * @return True if there was at least one pending load.
+     */
+    boolean cancelAll() {
+        boolean hadPendingLoads = mPendingLoads.size() > 0;
+        for (int i = 0; i < mPendingLoads.size(); i++) {
+            mPendingLoads.valueAt(i).cancel();
+        }
+        mPendingLoads.clear();
+        return hadPendingLoads;
+    }
+
+    /**
+     * Cancel all pending loads and stop the background thread if it was created by this class.
+     */
+    void shutdown() {
+        cancelAll();
+        if (mOwnsExecutor && mExecutor != null) {
+            mExecutor.shutdown();
+            mExecutor = null;
+            mOwnsExecutor = false;
+        }
+    }
+
+    private void deliver(PeriodLoad load, List<? extends WeekViewEvent> events, long durationNanos) {
+        // Drop the result if the load has been cancelled in the meantime.
+        if (mPendingLoads.get(load.periodIndex) != load)
+            return;
+        mPendingLoads.remove(load.periodIndex);
+        mCallback.onPeriodLoaded(load.periodIndex, events, durationNanos);
+    }
+
+    private class PeriodLoad implements Runnable {
+        final WeekViewLoader loader;
+        final int periodIndex;
+        volatile Future<?> future;
+
+        PeriodLoad(WeekViewLoader loader, int periodIndex) {
+            this.loader = loader;
+            this.periodIndex = periodIndex;
+        }
+
+        @Override
+        public void run() {
+            final List<? extends WeekViewEvent> events;
+            long startTime = System.nanoTime();
+            try {
+                events = loader.onLoad(periodIndex);
+            } catch (final RuntimeException e) {
+                if (future != null && future.isCancelled())
+                    return;
+
+                // Fail on the UI thread just like a synchronous loader would.
+                mHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        throw e;
+                    }
+                });
+                return;
+            }
+            final long durationNanos = System.nanoTime() - startTime;
+            mHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    deliver(PeriodLoad.this, events, durationNanos);
+                }
+            });
+        }
+
+        void cancel() {
+            Future<?> future = this.future;
+            if (future != null)
+                future.cancel(true);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.alamkanak.weekview;
+
+import android.util.SparseArray;
+
+import java.util.Calendar;
+import java.util.Locale;
+
+import static com.alamkanak.weekview.WeekViewUtil.*;
+
+/**
+ * Remembers the labels of another {@link DateTimeInterpreter}, so that each date and each hour is
+ * only formatted once instead of in every frame. Dates are keyed by their epoch day. The labels
+ * are dropped when the default locale changes or when {@link #clear()} is called.
+ */
+class CachingDateTimeInterpreter implements DateTimeInterpreter {
+    private static final int MAX_CACHED_DATES = 128;
+
+    private final SparseArray<String> mDates = new SparseArray<String>();
+    private final String[] mTimes = new String[24];
+    private DateTimeInterpreter mDelegate;
+    private Locale mLocale;
+
+    DateTimeInterpreter getDelegate() {
+        return mDelegate;
+    }
+
+    void setDelegate(DateTimeInterpreter delegate) {
+        mDelegate = delegate;
+        clear();
+    }
+
+    /**
+     * Drop all remembered labels.
+     */
+    void clear() {
+        mDates.clear();
+        for (int i = 0; i < mTimes.length; i++) {
+            mTimes[i] = null;
+        }
+    }
+
+    @Override
+    public String interpretDate(Calendar date) {
+        checkLocale();
+        int epochDay = getEpochDay(date);
+        String label = mDates.get(epochDay);
+        if (label == null) {
+            label = mDelegate.interpretDate(date);
+            if (label != null) {
+                if (mDates.size() >= MAX_CACHED_DATES)
+                    mDates.clear();
+                mDates.put(epochDay, label);
+            }
+        }
+        return label;
+    }
+
+    @Override
+    public String interpretTime(int hour) {
+        checkLocale();
+        if (hour < 0 || hour >= mTimes.length)
+            return mDelegate.interpretTime(hour);
+        String label = mTimes[hour];
+        if (label == null) {
+            label = mDelegate.interpretTime(hour);
+            mTimes[hour] = label;
+        }
+        return label;
+    }
+
+    private void checkLocale() {
+        Locale locale = Locale.getDefault();
+        if (!locale.equals(mLocale)) {
+            clear();
+            mLocale = locale;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.alamkanak.weekview;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Lists of items keyed by epoch day, sorted by day. Looking up a day does not allocate, and adding
+ * items in the order of their day only appends to the end. This class has no Android dependencies.
+ * @param <T> The type of the items.
+ */
+class DayIndex<T> {
+    private int[] mDays = new int[16];
+    private Object[] mItems = new Object[16];
+    private int mSize;
+
+    /**
+     * Get the items of a day.
+     * @param day The epoch day.
+     * @return The items of the day or null if there are none.
+     */
+    @SuppressWarnings("unchecked")
+    List<T> get(int day) {
+        int index = indexOf(day);
+        return index < 0 ? null : (List<T>) mItems[index];
+    }
+
+    /**
+     * Add an item to a day.
+     * @param day The epoch day.
+     * @param item The item.
+     */
+    @SuppressWarnings("unchecked")
+    void add(int day, T item) {
+        int index = mSize > 0 && mDays[mSize - 1] == day ? mSize - 1 : indexOf(day);
+        if (index < 0) {
+            index = ~index;
+            insert(index, day, new ArrayList<T>());
+        }
+        ((List<T>) mItems[index]).add(item);
+    }
+
+    /**
+     * Set the items of a day, replacing the ones it had.
+     * @param day The epoch day.
+     * @param items The items. The list is used as it is, not copied.
+     */
+    void put(int day, List<T> items) {
+        int index = mSize > 0 && mDays[mSize - 1] < day ? ~mSize : indexOf(day);
+        if (index >= 0)
+            mItems[index] = items;
+        else
+            insert(~index, day, items);
+    }
+
+    /**
+     * @return The number of days that have items.
+     */
+    int size() {
+        return mSize;
+    }
+
+    int dayAt(int index) {
+        return mDays[index];
+    }
+
+    @SuppressWarnings("unchecked")
+    List<T> valueAt(int index) {
+        return (List<T>) mItems[index];
+    }
+
+    void clear() {
+        Arrays.fill(mItems, 0, mSize, null);
+        mSize = 0;
+    }
+
+    private void insert(int index, int day, List<T> items) {
+        if (mSize == mDays.length) {
+            mDays = Arrays.copyOf(mDays, mSize * 2);
+            mItems = Arrays.copyOf(mItems, mSize * 2);
+        }
+        System.arraycopy(mDays, index, mDays, index + 1, mSize - index);
+        System.arraycopy(mItems, index, mItems, index + 1, mSize - index);
+        mDays[index] = day;
+        mItems[index] = items;
+        mSize++;
+    }
+
+    private int indexOf(int day) {
+        return Arrays.binarySearch(mDays, 0, mSize, day);
+    }
+}
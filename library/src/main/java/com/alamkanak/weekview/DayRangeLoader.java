@@ -0,0 +1,126 @@
+package com.alamkanak.weekview;
+
+import java.util.Calendar;
+import java.util.List;
+
+import static com.alamkanak.weekview.WeekViewUtil.*;
+
+/**
+ * Loads the events in periods of a fixed number of days. The periods are aligned to the first day
+ * of the week: a period of seven days always starts on the first day of the week, and for any
+ * other length one of the periods starts on it. To load only what is on screen, use as many days
+ * as the week view shows, e.g. 1 or 3. See {@link WeekLoader} for periods of one week.
+ * <p>
+ * If the loader is set on a {@link WeekView}, its first day of the week follows
+ * {@link WeekView#getFirstDayOfWeek()}.
+ * </p>
+ */
+public class DayRangeLoader implements WeekViewLoader {
+
+    // The number of days between January 1 of the year 0 and January 1, 1970.
+    private static final int DAYS_BEFORE_EPOCH = 719528;
+
+    private final int mDayCount;
+    private final int mPeriodOffset;
+    private int mFirstDayOfWeek = Calendar.MONDAY;
+    private DayRangeChangeListener mOnDayRangeChangeListener;
+
+    /**
+     * @param dayCount The number of days of each period. Must be at least 1.
+     * @param listener The listener that provides the events of a period.
+     */
+    public DayRangeLoader(int dayCount, DayRangeChangeListener listener) {
+        if (dayCount < 1)
+            throw new IllegalArgumentException("dayCount must be at least 1");
+        mDayCount = dayCount;
+        mOnDayRangeChangeListener = listener;
+
+        // The week view treats negative period indices as "nothing fetched yet", so the indices
+        // are shifted to be positive for all dates after the year 0.
+        mPeriodOffset = (DAYS_BEFORE_EPOCH + dayCount - 1) / dayCount;
+    }
+
+    @Override
+    public double toWeekViewPeriodIndex(Calendar instance) {
+        int days = getEpochDay(instance) - getFirstEpochDay();
+        int periodIndex = floorDiv(days, mDayCount);
+        return periodIndex + mPeriodOffset + (days - periodIndex * mDayCount) / (double) mDayCount;
+    }
+
+    @Override
+    public List<? extends WeekViewEvent> onLoad(int periodIndex) {
+        Calendar firstDay = getDay(getFirstEpochDay() + (periodIndex - mPeriodOffset) * mDayCount);
+        Calendar lastDay = (Calendar) firstDay.clone();
+        lastDay.add(Calendar.DATE, mDayCount - 1);
+        return mOnDayRangeChangeListener.onDayRangeChange(firstDay, lastDay);
+    }
+
+    /**
+     * @return The epoch day of a day on which a period starts.
+     */
+    private int getFirstEpochDay() {
+        // January 1, 1970 is a Thursday.
+        return floorMod(mFirstDayOfWeek - Calendar.THURSDAY, 7);
+    }
+
+    private static Calendar getDay(int epochDay) {
+        Calendar day = Calendar.getInstance();
+        day.clear();
+        day.set(1970, Calendar.JANUARY, 1);
+        day.add(Calendar.DATE, epochDay);
+        return day;
+    }
+
+    private static int floorDiv(int x, int y) {
+        int quotient = x / y;
+        if (x % y < 0)
+            quotient--;
+        return quotient;
+    }
+
+    private static int floorMod(int x, int y) {
+        return x - floorDiv(x, y) * y;
+    }
+
+    /**
+     * @return The number of days of each period.
+     */
+    public int getDayCount() {
+        return mDayCount;
+    }
+
+    public int getFirstDayOfWeek() {
+        return mFirstDayOfWeek;
+    }
+
+    /**
+     * Set the day of the week on which the periods are aligned. This changes the period indices, so
+     * the events have to be loaded again.
+     * @param firstDayOfWeek The first day of the week, e.g. {@link Calendar#MONDAY}.
+     */
+    public void setFirstDayOfWeek(int firstDayOfWeek) {
+        if (firstDayOfWeek < Calendar.SUNDAY || firstDayOfWeek > Calendar.SATURDAY)
+            throw new IllegalArgumentException("firstDayOfWeek must be a day of the week");
+        mFirstDayOfWeek = firstDayOfWeek;
+    }
+
+    public DayRangeChangeListener getOnDayRangeChangeListener() {
+        return mOnDayRangeChangeListener;
+    }
+
+    public void setOnDayRangeChangeListener(DayRangeChangeListener onDayRangeChangeListener) {
+        this.mOnDayRangeChangeListener = onDayRangeChangeListener;
+    }
+
+    public interface DayRangeChangeListener {
+        /**
+         * Load the events of a period. This method is called three times: once for the period that
+         * is shown, once for the period before and once for the period after it.
+         * @param firstDay The first day of the period, at midnight.
+         * @param lastDay The last day of the period, at midnight. The events of this day must be
+         *                included.
+         * @return a list of the events happening <strong>during the specified days</strong>.
+         */
+        List<? extends WeekViewEvent> onDayRangeChange(Calendar firstDay, Calendar lastDay);
+    }
+}
@@ -0,0 +1,135 @@
+package com.alamkanak.weekview;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * Bitmaps of rendered day columns, so that a day column that has only moved horizontally can be
+ * drawn by copying its bitmap. A tile stays valid as long as the entries of its day, its
+ * past/today/future state and the generation of the cache stay the same. The week view starts a
+ * new generation whenever anything else that is drawn into the tiles changes.
+ * <p>
+ * The tiles are kept in least recently used order within a memory limit. Bitmaps of evicted tiles
+ * are reused for other days instead of being allocated again. They are never recycled explicitly,
+ * because a bitmap may still be referenced by the display list of the last frame.
+ * </p>
+ */
+class DayTileCache {
+    private final LinkedHashMap<Integer, Tile> mTiles = new LinkedHashMap<Integer, Tile>(16, 0.75f, true);
+    private final List<Bitmap> mFreeBitmaps = new ArrayList<Bitmap>();
+    private final int mMaxBytes;
+    private int mWidth;
+    private int mHeight;
+    private int mGeneration;
+    private int mFrame;
+
+    /**
+     * @param maxBytes The maximum number of bytes of all bitmaps.
+     */
+    DayTileCache(int maxBytes) {
+        mMaxBytes = maxBytes;
+    }
+
+    /**
+     * Start a frame. If the size of the tiles or the generation has changed, all tiles are dropped.
+     * @param width The width of a tile.
+     * @param height The height of a tile.
+     * @param generation The generation of everything that is drawn into the tiles besides the
+     *                   entries of the day.
+     */
+    void beginFrame(int width, int height, int generation) {
+        mFrame++;
+        if (width != mWidth || height != mHeight) {
+            mTiles.clear();
+            mFreeBitmaps.clear();
+            mWidth = width;
+            mHeight = height;
+        }
+        else if (generation != mGeneration) {
+            for (Tile tile : mTiles.values()) {
+                mFreeBitmaps.add(tile.bitmap);
+            }
+            mTiles.clear();
+        }
+        mGeneration = generation;
+    }
+
+    /**
+     * Get the tile of a day if it is still valid.
+     * @param day The epoch day.
+     * @param entries The entries of the day.
+     * @param state Whether the day is in the past, today or in the future.
+     * @return The bitmap of the day or null if the day has to be drawn again.
+     */
+    Bitmap get(int day, List<?> entries, int state) {
+        Tile tile = mTiles.get(day);
+        if (tile == null || tile.entries != entries || tile.state != state)
+            return null;
+        tile.frame = mFrame;
+        return tile.bitmap;
+    }
+
+    /**
+     * Get a cleared bitmap into which a day is drawn. It becomes the tile of the day.
+     * @param day The epoch day.
+     * @param entries The entries of the day.
+     * @param state Whether the day is in the past, today or in the future.
+     * @return The bitmap or null if there is not enough memory for another tile in this frame.
+     */
+    Bitmap obtain(int day, List<?> entries, int state) {
+        if (mWidth <= 0 || mHeight <= 0)
+            return null;
+        Tile tile = mTiles.remove(day);
+        Bitmap bitmap = tile != null ? tile.bitmap : obtainBitmap();
+        if (bitmap == null)
+            return null;
+        bitmap.eraseColor(Color.TRANSPARENT);
+
+        if (tile == null)
+            tile = new Tile();
+        tile.bitmap = bitmap;
+        tile.entries = entries;
+        tile.state = state;
+        tile.frame = mFrame;
+        mTiles.put(day, tile);
+        return bitmap;
+    }
+
+    private Bitmap obtainBitmap() {
+        if (!mFreeBitmaps.isEmpty())
+            return mFreeBitmaps.remove(mFreeBitmaps.size() - 1);
+        if ((long) (mTiles.size() + 1) * mWidth * mHeight * 4 <= mMaxBytes)
+            return Bitmap.createBitmap(mWidth, mHeight, Bitmap.Config.ARGB_8888);
+
+        // Take the bitmap of the least recently used tile, unless it is drawn in this frame.
+        Iterator<Tile> iterator = mTiles.values().iterator();
+        if (!iterator.hasNext())
+            return null;
+        Tile tile = iterator.next();
+        if (tile.frame == mFrame)
+            return null;
+        iterator.remove();
+        return tile.bitmap;
+    }
+
+    void clear() {
+        mTiles.clear();
+        mFreeBitmaps.clear();
+    }
+
+    int getMaxBytes() {
+        return mMaxBytes;
+    }
+
+    private static class Tile {
+        Bitmap bitmap;
+        List<?> entries;
+        int state;
+        int frame;
+    }
+}
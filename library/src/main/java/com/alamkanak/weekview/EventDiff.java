@@ -0,0 +1,109 @@
+package com.alamkanak.weekview;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares reloaded events of a period with the events that were loaded before. Events are matched
+ * by id. A reloaded event that has the same times, name, location and color as an event with the
+ * same id is unchanged, and the event that was loaded before is kept in its place. That way the
+ * layout of unchanged events can be kept. The changes of several periods can be collected in one
+ * diff.
+ */
+class EventDiff {
+    private final List<WeekViewEvent> mRemovedEvents = new ArrayList<WeekViewEvent>();
+    private final List<WeekViewEvent> mAddedEvents = new ArrayList<WeekViewEvent>();
+
+    /**
+     * Compare the reloaded events of a period with the events that were loaded before and collect
+     * the changes.
+     * @param oldEvents The events that were loaded before, or null if there were none.
+     * @param newEvents The reloaded events.
+     * @return A new list with the reloaded events, in which the unchanged events are replaced by
+     * the events that were loaded before.
+     */
+    List<WeekViewEvent> merge(List<? extends WeekViewEvent> oldEvents, List<? extends WeekViewEvent> newEvents) {
+        Map<Long, List<WeekViewEvent>> oldEventsById = new HashMap<Long, List<WeekViewEvent>>();
+        if (oldEvents != null) {
+            for (int i = 0; i < oldEvents.size(); i++) {
+                WeekViewEvent event = oldEvents.get(i);
+                List<WeekViewEvent> eventsOfId = oldEventsById.get(event.getId());
+                if (eventsOfId == null) {
+                    eventsOfId = new ArrayList<WeekViewEvent>(1);
+                    oldEventsById.put(event.getId(), eventsOfId);
+                }
+                eventsOfId.add(event);
+            }
+        }
+
+        List<WeekViewEvent> mergedEvents = new ArrayList<WeekViewEvent>(newEvents.size());
+        for (int i = 0; i < newEvents.size(); i++) {
+            WeekViewEvent event = newEvents.get(i);
+            WeekViewEvent oldEvent = removeUnchangedEvent(oldEventsById.get(event.getId()), event);
+            if (oldEvent != null) {
+                mergedEvents.add(oldEvent);
+            }
+            else {
+                mergedEvents.add(event);
+                mAddedEvents.add(event);
+            }
+        }
+
+        // The old events that have not been matched are gone or have changed.
+        for (List<WeekViewEvent> eventsOfId : oldEventsById.values()) {
+            mRemovedEvents.addAll(eventsOfId);
+        }
+        return mergedEvents;
+    }
+
+    /**
+     * Find an old event that is equal to a reloaded event and remove it from the candidates.
+     * @param oldEvents The old events with the id of the reloaded event, or null if there are none.
+     * @param event The reloaded event.
+     * @return The old event or null if there is none.
+     */
+    private static WeekViewEvent removeUnchangedEvent(List<WeekViewEvent> oldEvents, WeekViewEvent event) {
+        if (oldEvents == null)
+            return null;
+        event.updateTimes();
+        for (int i = 0; i < oldEvents.size(); i++) {
+            WeekViewEvent oldEvent = oldEvents.get(i);
+            if (isUnchanged(oldEvent, event)) {
+                oldEvents.remove(i);
+                return oldEvent;
+            }
+        }
+        return null;
+    }
+
+    private static boolean isUnchanged(WeekViewEvent oldEvent, WeekViewEvent event) {
+        // The same instance may have been modified, there is no way to tell.
+        return oldEvent != event &&
+                oldEvent.getStartTimeInMillis() == event.getStartTimeInMillis() &&
+                oldEvent.getEndTimeInMillis() == event.getEndTimeInMillis() &&
+                oldEvent.isAllDay() == event.isAllDay() &&
+                oldEvent.getColor() == event.getColor() &&
+                equals(oldEvent.getName(), event.getName()) &&
+                equals(oldEvent.getLocation(), event.getLocation());
+    }
+
+    private static boolean equals(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    /**
+     * @return The events that were loaded before and have been removed or changed.
+     */
+    List<WeekViewEvent> getRemovedEvents() {
+        return mRemovedEvents;
+    }
+
+    /**
+     * @return The reloaded events that are new or have changed.
+     */
+    List<WeekViewEvent> getAddedEvents() {
+        return mAddedEvents;
+    }
+}
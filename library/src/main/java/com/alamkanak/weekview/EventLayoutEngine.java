@@ -0,0 +1,20 @@
+package com.alamkanak.weekview;
+
+/**
+ * Calculates the horizontal position of the events of a single day. Events that overlap in time
+ * have to share the width of the day. Set your own engine with
+ * {@link WeekView#setEventLayoutEngine(EventLayoutEngine)}.
+ */
+public interface EventLayoutEngine {
+    /**
+     * Calculate the left position and the width of the events of a day. The positions are
+     * fractions of the width of the day, i.e. an event that occupies the whole day has a left
+     * position of 0 and a width of 1.
+     * @param startTimes The start times of the events in milliseconds.
+     * @param endTimes The end times of the events in milliseconds.
+     * @param count The number of events. Only the first {@code count} values of the arrays are used.
+     * @param lefts Receives the left position of each event.
+     * @param widths Receives the width of each event.
+     */
+    void computePositions(long[] startTimes, long[] endTimes, int count, float[] lefts, float[] widths);
+}
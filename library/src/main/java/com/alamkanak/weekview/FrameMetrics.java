@@ -0,0 +1,39 @@
+package com.alamkanak.weekview;
+
+/**
+ * The time that one frame of the week view spent in each part of drawing. All times are in
+ * nanoseconds. The object is reused for every frame, so its values are only valid during
+ * {@link WeekView.MetricsListener#onFrameDrawn(FrameMetrics)}.
+ */
+public class FrameMetrics {
+    /** The time of the whole frame. */
+    public long totalNanos;
+    /** Loading and laying out events, in frames that fetch new periods. */
+    public long fetchNanos;
+    /** Dimensions, day backgrounds, hour separators and the now line. */
+    public long gridNanos;
+    /** The timed events, including their titles. */
+    public long eventsNanos;
+    /** The all-day events, including their titles. */
+    public long allDayEventsNanos;
+    /** The titles of the timed and all-day events. This is part of the two times above. */
+    public long eventTitlesNanos;
+    /** The header row without the all-day events. */
+    public long headerNanos;
+    /** The time column. */
+    public long timeColumnNanos;
+    /** The number of event rectangles that were drawn. */
+    public int drawnEventCount;
+
+    void reset() {
+        totalNanos = 0;
+        fetchNanos = 0;
+        gridNanos = 0;
+        eventsNanos = 0;
+        allDayEventsNanos = 0;
+        eventTitlesNanos = 0;
+        headerNanos = 0;
+        timeColumnNanos = 0;
+        drawnEventCount = 0;
+    }
+}
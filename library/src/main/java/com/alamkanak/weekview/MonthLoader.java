@@ -13,7 +13,8 @@ public class MonthLoader implements WeekViewLoader {
 
     @Override
     public double toWeekViewPeriodIndex(Calendar instance){
-        return instance.get(Calendar.YEAR) * 12 + instance.get(Calendar.MONTH) + (instance.get(Calendar.DAY_OF_MONTH) - 1) / 30.0;
+        // The fraction must stay below 1, or the last day of a long month falls into the next one.
+        return instance.get(Calendar.YEAR) * 12 + instance.get(Calendar.MONTH) + (instance.get(Calendar.DAY_OF_MONTH) - 1) / (double) instance.getActualMaximum(Calendar.DAY_OF_MONTH);
     }
 
     @Override
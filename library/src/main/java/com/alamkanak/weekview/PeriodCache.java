@@ -0,0 +1,175 @@
+package com.alamkanak.weekview;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A least recently used cache of the events of loaded periods, keyed by period index. The cache is
+ * bounded by the number of periods and by the total number of events it holds. The periods that
+ * are currently shown are never evicted.
+ */
+class PeriodCache {
+    private final LinkedHashMap<Integer, List<? extends WeekViewEvent>> mPeriods = new LinkedHashMap<Integer, List<? extends WeekViewEvent>>(16, 0.75f, true);
+    private int mMaxSize;
+    private int mMaxEventCount;
+    private int mEventCount;
+    private int mHitCount;
+    private int mMissCount;
+
+    PeriodCache(int maxSize, int maxEventCount) {
+        mMaxSize = maxSize;
+        mMaxEventCount = maxEventCount;
+    }
+
+    /**
+     * Get the events of a period and count the lookup as a hit or a miss.
+     * @param periodIndex The period.
+     * @return The events of the period or null if the period is not cached.
+     */
+    List<? extends WeekViewEvent> get(int periodIndex) {
+        List<? extends WeekViewEvent> events = mPeriods.get(periodIndex);
+        if (events == null)
+            mMissCount++;
+        else
+            mHitCount++;
+        return events;
+    }
+
+    /**
+     * Get the events of a period without counting the lookup.
+     * @param periodIndex The period.
+     * @return The events of the period or null if the period is not cached.
+     */
+    List<? extends WeekViewEvent> peek(int periodIndex) {
+        return mPeriods.get(periodIndex);
+    }
+
+    void put(int periodIndex, List<? extends WeekViewEvent> events) {
+        List<? extends WeekViewEvent> oldEvents = mPeriods.put(periodIndex, events);
+        if (oldEvents != null)
+            mEventCount -= oldEvents.size();
+        mEventCount += events.size();
+    }
+
+    /**
+     * Evict the least recently used periods until the cache fits into its bounds again.
+     * @param firstPinnedPeriodIndex The first period that must not be evicted.
+     * @param lastPinnedPeriodIndex The last period that must not be evicted.
+     */
+    void trim(int firstPinnedPeriodIndex, int lastPinnedPeriodIndex) {
+        Iterator<Map.Entry<Integer, List<? extends WeekViewEvent>>> iterator = mPeriods.entrySet().iterator();
+        while ((mPeriods.size() > mMaxSize || mEventCount > mMaxEventCount) && iterator.hasNext()) {
+            Map.Entry<Integer, List<? extends WeekViewEvent>> entry = iterator.next();
+            if (entry.getKey() < firstPinnedPeriodIndex || entry.getKey() > lastPinnedPeriodIndex) {
+                mEventCount -= entry.getValue().size();
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Remove all periods that are not within the given range.
+     * @param firstPeriodIndex The first period to keep.
+     * @param lastPeriodIndex The last period to keep.
+     */
+    void retain(int firstPeriodIndex, int lastPeriodIndex) {
+        Iterator<Map.Entry<Integer, List<? extends WeekViewEvent>>> iterator = mPeriods.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Integer, List<? extends WeekViewEvent>> entry = iterator.next();
+            if (entry.getKey() < firstPeriodIndex || entry.getKey() > lastPeriodIndex) {
+                mEventCount -= entry.getValue().size();
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Add an event to a cached period. The list of the period is copied, so the list that was
+     * returned by the loader is not changed. The period keeps its place in the LRU order.
+     * @param periodIndex The period.
+     * @param event The event to add.
+     * @return False if the period is not cached.
+     */
+    boolean addEvent(int periodIndex, WeekViewEvent event) {
+        for (Map.Entry<Integer, List<? extends WeekViewEvent>> entry : mPeriods.entrySet()) {
+            if (entry.getKey() == periodIndex) {
+                List<WeekViewEvent> events = new ArrayList<WeekViewEvent>(entry.getValue().size() + 1);
+                events.addAll(entry.getValue());
+                events.add(event);
+                entry.setValue(events);
+                mEventCount++;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Remove the events with the given ids from all cached periods. The lists of the changed
+     * periods are copied, so the lists that were returned by the loader are not changed.
+     * @param eventIds The ids of the events to remove.
+     * @param changedPeriodIndices The list to which the periods that contained at least one of the
+     *                             events are added.
+     * @param removedEvents The list to which the removed events are added.
+     */
+    void removeEvents(Set<Long> eventIds, List<Integer> changedPeriodIndices, List<WeekViewEvent> removedEvents) {
+        for (Map.Entry<Integer, List<? extends WeekViewEvent>> entry : mPeriods.entrySet()) {
+            List<? extends WeekViewEvent> oldEvents = entry.getValue();
+            List<WeekViewEvent> events = null;
+            for (int i = 0; i < oldEvents.size(); i++) {
+                WeekViewEvent event = oldEvents.get(i);
+                if (eventIds.contains(event.getId())) {
+                    removedEvents.add(event);
+                    if (events == null)
+                        events = new ArrayList<WeekViewEvent>(oldEvents.subList(0, i));
+                }
+                else if (events != null) {
+                    events.add(event);
+                }
+            }
+            if (events != null) {
+                mEventCount -= oldEvents.size() - events.size();
+                entry.setValue(events);
+                changedPeriodIndices.add(entry.getKey());
+            }
+        }
+    }
+
+    void clear() {
+        mPeriods.clear();
+        mEventCount = 0;
+    }
+
+    int getMaxSize() {
+        return mMaxSize;
+    }
+
+    void setMaxSize(int maxSize) {
+        mMaxSize = maxSize;
+    }
+
+    int getMaxEventCount() {
+        return mMaxEventCount;
+    }
+
+    void setMaxEventCount(int maxEventCount) {
+        mMaxEventCount = maxEventCount;
+    }
+
+    int getHitCount() {
+        return mHitCount;
+    }
+
+    int getMissCount() {
+        return mMissCount;
+    }
+
+    void resetStatistics() {
+        mHitCount = 0;
+        mMissCount = 0;
+    }
+}
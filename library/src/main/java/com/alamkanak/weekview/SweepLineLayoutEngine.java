@@ -0,0 +1,140 @@
+package com.alamkanak.weekview;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * The default {@link EventLayoutEngine}. Events are visited in the order of their start time. A
+ * heap keeps the events that are still active at the current start time, so an event can be put
+ * into the leftmost free column in O(log n). Overlapping events form a collision group and share
+ * the width of the day equally between the columns of the group.
+ */
+public class SweepLineLayoutEngine implements EventLayoutEngine {
+
+    @Override
+    public void computePositions(final long[] startTimes, long[] endTimes, int count, float[] lefts, float[] widths) {
+        if (count == 0)
+            return;
+
+        // Sort the events by start time. The sort is stable, so events with the same start time
+        // keep their order.
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer event1, Integer event2) {
+                long start1 = startTimes[event1];
+                long start2 = startTimes[event2];
+                return start1 > start2 ? 1 : (start1 < start2 ? -1 : 0);
+            }
+        });
+
+        int[] columns = new int[count];
+        IntHeap activeEvents = new IntHeap(count, endTimes);
+        IntHeap freeColumns = new IntHeap(count, null);
+        int groupStart = 0;
+        int columnCount = 0;
+        long groupEnd = Long.MIN_VALUE;
+
+        for (int i = 0; i < count; i++) {
+            int event = order[i];
+            long start = startTimes[event];
+
+            // The event does not collide with any event of the current group, so the group is
+            // complete.
+            if (start >= groupEnd) {
+                finishGroup(order, groupStart, i, columns, columnCount, lefts, widths);
+                activeEvents.clear();
+                freeColumns.clear();
+                groupStart = i;
+                columnCount = 0;
+            }
+
+            // Release the columns of all events that ended before this one starts.
+            while (!activeEvents.isEmpty() && endTimes[activeEvents.peek()] <= start) {
+                freeColumns.push(columns[activeEvents.pop()]);
+            }
+
+            // Use the leftmost free column or open a new one.
+            columns[event] = freeColumns.isEmpty() ? columnCount++ : freeColumns.pop();
+            activeEvents.push(event);
+            groupEnd = Math.max(groupEnd, endTimes[event]);
+        }
+        finishGroup(order, groupStart, count, columns, columnCount, lefts, widths);
+    }
+
+    /**
+     * Set the positions of all the events of a collision group.
+     */
+    private static void finishGroup(Integer[] order, int from, int to, int[] columns, int columnCount, float[] lefts, float[] widths) {
+        for (int i = from; i < to; i++) {
+            int event = order[i];
+            widths[event] = 1f / columnCount;
+            lefts[event] = (float) columns[event] / columnCount;
+        }
+    }
+
+    /**
+     * A binary min-heap of ints. The values are either ordered by themselves or by the key they
+     * point to.
+     */
+    private static class IntHeap {
+        private final int[] mValues;
+        private final long[] mKeys;
+        private int mSize;
+
+        IntHeap(int capacity, long[] keys) {
+            mValues = new int[capacity];
+            mKeys = keys;
+        }
+
+        boolean isEmpty() {
+            return mSize == 0;
+        }
+
+        void clear() {
+            mSize = 0;
+        }
+
+        int peek() {
+            return mValues[0];
+        }
+
+        void push(int value) {
+            int i = mSize++;
+            while (i > 0) {
+                int parent = (i - 1) / 2;
+                if (key(mValues[parent]) <= key(value))
+                    break;
+                mValues[i] = mValues[parent];
+                i = parent;
+            }
+            mValues[i] = value;
+        }
+
+        int pop() {
+            int top = mValues[0];
+            int last = mValues[--mSize];
+            int i = 0;
+            while (true) {
+                int child = i * 2 + 1;
+                if (child >= mSize)
+                    break;
+                if (child + 1 < mSize && key(mValues[child + 1]) < key(mValues[child]))
+                    child++;
+                if (key(last) <= key(mValues[child]))
+                    break;
+                mValues[i] = mValues[child];
+                i = child;
+            }
+            mValues[i] = last;
+            return top;
+        }
+
+        private long key(int value) {
+            return mKeys == null ? value : mKeys[value];
+        }
+    }
+}
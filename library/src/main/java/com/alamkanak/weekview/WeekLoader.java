@@ -0,0 +1,12 @@
+package com.alamkanak.weekview;
+
+/**
+ * Loads the events week by week. Each week starts on the first day of the week, which follows
+ * {@link WeekView#getFirstDayOfWeek()} if the loader is set on a week view.
+ */
+public class WeekLoader extends DayRangeLoader {
+
+    public WeekLoader(DayRangeChangeListener listener) {
+        super(7, listener);
+    }
+}
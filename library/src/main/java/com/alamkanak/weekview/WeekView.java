@@ -1,10 +1,13 @@
 package com.alamkanak.weekview;
 
 import android.content.Context;
+import android.content.res.Configuration;
 import android.content.res.TypedArray;
+import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
+import android.graphics.Picture;
 import android.graphics.PointF;
 import android.graphics.Rect;
 import android.graphics.RectF;
@@ -24,6 +27,7 @@ import android.text.format.DateFormat;
 import android.text.format.DateUtils;
 import android.text.style.StyleSpan;
 import android.util.AttributeSet;
+import android.util.SparseArray;
 import android.util.TypedValue;
 import android.view.GestureDetector;
 import android.view.HapticFeedbackConstants;
@@ -38,9 +42,15 @@ import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.List;
 import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.alamkanak.weekview.WeekViewUtil.*;
 
@@ -58,6 +68,7 @@ public class WeekView extends View {
     public static final int LENGTH_SHORT = 1;
     @Deprecated
     public static final int LENGTH_LONG = 2;
+    private static final int NO_DAY = Integer.MIN_VALUE;
     private final Context mContext;
     private Paint mTimeTextPaint;
     private float mTimeTextWidth;
@@ -83,10 +94,15 @@ public class WeekView extends View {
     private Paint mTodayHeaderTextPaint;
     private Paint mEventBackgroundPaint;
     private float mHeaderColumnWidth;
-    private List<EventRect> mEventRects;
-    private List<? extends WeekViewEvent> mPreviousPeriodEvents;
-    private List<? extends WeekViewEvent> mCurrentPeriodEvents;
-    private List<? extends WeekViewEvent> mNextPeriodEvents;
+    private boolean mEventsLoaded;
+    private final WeekViewLayout mLayout = new WeekViewLayout() {
+        @Override
+        protected Entry createEntry(WeekViewEvent event, WeekViewEvent originalEvent) {
+            return new EventRect(event, originalEvent);
+        }
+    };
+    private final WeekViewLayout.Viewport mViewport = new WeekViewLayout.Viewport();
+    private PeriodCache mPeriodCache = new PeriodCache(6, Integer.MAX_VALUE);
     private TextPaint mEventTextPaint;
     private Paint mHeaderColumnBackgroundPaint;
     private int mFetchedPeriod = -1; // the middle period the calendar has fetched.
@@ -96,6 +112,43 @@ public class WeekView extends View {
     private boolean mIsZooming;
     private Calendar mFirstVisibleDay;
     private Calendar mLastVisibleDay;
+    // Buffers reused by every frame, so that drawing does not allocate.
+    private final Calendar mToday = Calendar.getInstance();
+    private final Calendar mDrawDay = Calendar.getInstance();
+    private final Calendar mNow = Calendar.getInstance();
+    private long mNowMinuteStart = Long.MIN_VALUE;
+    private int mNowMinuteOfDay;
+    private final Runnable mNowUpdater = new Runnable() {
+        @Override
+        public void run() {
+            int oldEpochDay = getEpochDay(mToday);
+            int oldMinuteOfDay = mNowMinuteOfDay;
+            updateToday();
+            if (getEpochDay(mToday) != oldEpochDay)
+                invalidate();
+            else if (mNowMinuteOfDay != oldMinuteOfDay)
+                invalidateNow(oldMinuteOfDay, mNowMinuteOfDay);
+            scheduleNowUpdate();
+        }
+    };
+    private float[] mHourLines = new float[0];
+    private final RectF mEventRectF = new RectF();
+    private final Rect mDirtyRect = new Rect();
+    private DayTileCache mDayTileCache; // null unless tiles are enabled
+    private Canvas mTileCanvas;
+    private int mTileGeneration;
+    private float mTileOriginY;
+    private int mTileHourHeight;
+    private float mTileTop;
+    private boolean mAreDayTilesDrawn;
+    private boolean mGridPicturesEnabled;
+    private Picture mHourLinesPicture;
+    private final float[] mHourLinesPictureLines = new float[24 * 4];
+    private Picture mTimeColumnPicture;
+    private int mGridGeneration;
+    private int mGridPictureGeneration = -1;
+    private int mGridPictureHourHeight;
+    private float mGridPictureWidthPerDay;
     private boolean mShowFirstDayOfWeekFirst = false;
     private int mDefaultEventColor;
     private int mMinimumFlingVelocity = 0;
@@ -145,6 +198,23 @@ public class WeekView extends View {
     private boolean mVerticalFlingEnabled = true;
     private int mAllDayEventHeight = 100;
     private int mScrollDuration = 250;
+    private int mEventDetailMinHeight = 16;
+    private int mEventDetailMinWidth = 16;
+    private int mEventGroupMinWidth = 8;
+    private int mTextLayoutGeneration = 0;
+    private int mEventTextLineHeight = 0;
+    private final SparseArray<String> mEventGroupTitles = new SparseArray<String>();
+    private boolean mAsyncLoadingEnabled = false;
+    private AsyncEventLoader mAsyncEventLoader;
+    private int mMaxPrefetchLoads = 3;
+    // The periods around the end of the current fling; empty if first > last.
+    private int mPrefetchFirstPeriod = 0;
+    private int mPrefetchLastPeriod = -1;
+    private boolean mBackgroundLayoutEnabled = false;
+    private ThreadPoolExecutor mLayoutExecutor;
+    private final AtomicInteger mLayoutRequest = new AtomicInteger();
+    private int mPublishedLayoutRequest; // guarded by mLayoutRequest
+    private WeekViewLayout.EventBatch mBackgroundLayoutBatch;
 
     // Listeners.
     private EventClickListener mEventClickListener;
@@ -153,7 +223,10 @@ public class WeekView extends View {
     private EmptyViewClickListener mEmptyViewClickListener;
     private EmptyViewLongPressListener mEmptyViewLongPressListener;
     private DateTimeInterpreter mDateTimeInterpreter;
+    private final CachingDateTimeInterpreter mCachingDateTimeInterpreter = new CachingDateTimeInterpreter();
     private ScrollListener mScrollListener;
+    private MetricsListener mMetricsListener;
+    private FrameMetrics mFrameMetrics; // null unless a metrics listener is set
 
     private final GestureDetector.SimpleOnGestureListener mGestureListener = new GestureDetector.SimpleOnGestureListener() {
 
@@ -204,11 +277,11 @@ public class WeekView extends View {
                 case LEFT:
                 case RIGHT:
                     mCurrentOrigin.x -= distanceX * mXScrollingSpeed;
-                    ViewCompat.postInvalidateOnAnimation(WeekView.this);
+                    postInvalidateDaysOnAnimation();
                     break;
                 case VERTICAL:
                     mCurrentOrigin.y -= distanceY;
-                    ViewCompat.postInvalidateOnAnimation(WeekView.this);
+                    postInvalidateHoursOnAnimation();
                     break;
             }
             return true;
@@ -232,13 +305,15 @@ public class WeekView extends View {
                 case LEFT:
                 case RIGHT:
                     mScroller.fling((int) mCurrentOrigin.x, (int) mCurrentOrigin.y, (int) (velocityX * mXScrollingSpeed), 0, Integer.MIN_VALUE, Integer.MAX_VALUE, (int) -(mHourHeight * 24 + mHeaderHeight + mHeaderRowPadding * 2 + mHeaderMarginBottom + mTimeTextHeight / 2 - getHeight()), 0);
+                    prefetchFlingTarget();
                     break;
                 case VERTICAL:
                     mScroller.fling((int) mCurrentOrigin.x, (int) mCurrentOrigin.y, 0, (int) velocityY, Integer.MIN_VALUE, Integer.MAX_VALUE, (int) -(mHourHeight * 24 + mHeaderHeight + mHeaderRowPadding * 2 + mHeaderMarginBottom + mTimeTextHeight/2 - getHeight()), 0);
-                    break;
+                    postInvalidateHoursOnAnimation();
+                    return true;
             }
 
-            ViewCompat.postInvalidateOnAnimation(WeekView.this);
+            postInvalidateDaysOnAnimation();
             return true;
         }
 
@@ -246,15 +321,12 @@ public class WeekView extends View {
         @Override
         public boolean onSingleTapConfirmed(MotionEvent e) {
             // If the tap was on an event then trigger the callback.
-            if (mEventRects != null && mEventClickListener != null) {
-                List<EventRect> reversedEventRects = mEventRects;
-                Collections.reverse(reversedEventRects);
-                for (EventRect event : reversedEventRects) {
-                    if (event.rectF != null && e.getX() > event.rectF.left && e.getX() < event.rectF.right && e.getY() > event.rectF.top && e.getY() < event.rectF.bottom) {
-                        mEventClickListener.onEventClick(event.originalEvent, event.rectF);
-                        playSoundEffect(SoundEffectConstants.CLICK);
-                        return super.onSingleTapConfirmed(e);
-                    }
+            if (mEventClickListener != null) {
+                int command = mLayout.getCommandAt(e.getX(), e.getY());
+                if (command >= 0) {
+                    mEventClickListener.onEventClick(mLayout.getCommandEntry(command).originalEvent, getCommandRect(command));
+                    playSoundEffect(SoundEffectConstants.CLICK);
+                    return super.onSingleTapConfirmed(e);
                 }
             }
 
@@ -274,15 +346,12 @@ public class WeekView extends View {
         public void onLongPress(MotionEvent e) {
             super.onLongPress(e);
 
-            if (mEventLongPressListener != null && mEventRects != null) {
-                List<EventRect> reversedEventRects = mEventRects;
-                Collections.reverse(reversedEventRects);
-                for (EventRect event : reversedEventRects) {
-                    if (event.rectF != null && e.getX() > event.rectF.left && e.getX() < event.rectF.right && e.getY() > event.rectF.top && e.getY() < event.rectF.bottom) {
-                        mEventLongPressListener.onEventLongPress(event.originalEvent, event.rectF);
-                        performHapticFeedback(HapticFeedbackConstants.LONG_PRESS);
-                        return;
-                    }
+            if (mEventLongPressListener != null) {
+                int command = mLayout.getCommandAt(e.getX(), e.getY());
+                if (command >= 0) {
+                    mEventLongPressListener.onEventLongPress(mLayout.getCommandEntry(command).originalEvent, getCommandRect(command));
+                    performHapticFeedback(HapticFeedbackConstants.LONG_PRESS);
+                    return;
                 }
             }
 
@@ -297,6 +366,32 @@ public class WeekView extends View {
         }
     };
 
+    private final AsyncEventLoader.Callback mAsyncEventLoaderCallback = new AsyncEventLoader.Callback() {
+        @Override
+        public void onPeriodLoaded(int periodIndex, List<? extends WeekViewEvent> events, long durationNanos) {
+            if (mMetricsListener != null)
+                mMetricsListener.onPeriodLoaded(periodIndex, events == null ? 0 : events.size(), durationNanos);
+
+            EventDiff diff = new EventDiff();
+            mPeriodCache.put(periodIndex, diff.merge(mPeriodCache.peek(periodIndex), events == null ? Collections.<WeekViewEvent>emptyList() : events));
+            mPeriodCache.trim(mFetchedPeriod - 1, mFetchedPeriod + 1);
+            if (!isShownPeriod(periodIndex))
+                return;
+
+            // Only the events that have changed are laid out and drawn again.
+            if (isLayoutPending()) {
+                rebuildEventRects();
+                invalidate();
+                return;
+            }
+            List<Integer> oldDays = new ArrayList<Integer>();
+            mLayout.getSnapshot().getDaysOf(diff.getRemovedEvents(), oldDays);
+            float headerHeight = mHeaderHeight;
+            if (updateLayout(diff.getRemovedEvents(), diff.getAddedEvents()))
+                invalidateEvents(headerHeight, oldDays, diff.getAddedEvents());
+        }
+    };
+
     public WeekView(Context context) {
         this(context, null);
     }
@@ -354,6 +449,9 @@ public class WeekView extends View {
             mVerticalFlingEnabled = a.getBoolean(R.styleable.WeekView_verticalFlingEnabled, mVerticalFlingEnabled);
             mAllDayEventHeight = a.getDimensionPixelSize(R.styleable.WeekView_allDayEventHeight, mAllDayEventHeight);
             mScrollDuration = a.getInt(R.styleable.WeekView_scrollDuration, mScrollDuration);
+            mEventDetailMinHeight = a.getDimensionPixelSize(R.styleable.WeekView_eventDetailMinHeight, mEventDetailMinHeight);
+            mEventDetailMinWidth = a.getDimensionPixelSize(R.styleable.WeekView_eventDetailMinWidth, mEventDetailMinWidth);
+            mEventGroupMinWidth = a.getDimensionPixelSize(R.styleable.WeekView_eventGroupMinWidth, mEventGroupMinWidth);
         } finally {
             a.recycle();
         }
@@ -460,12 +558,64 @@ public class WeekView extends View {
             @Override
             public boolean onScale(ScaleGestureDetector detector) {
                 mNewHourHeight = Math.round(mHourHeight * detector.getScaleFactor());
-                invalidate();
+                postInvalidateHoursOnAnimation();
                 return true;
             }
         });
     }
 
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        scheduleNowUpdate();
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        removeCallbacks(mNowUpdater);
+
+        // Results of cancelled loads never arrive, so load the periods again on the next draw. The
+        // background thread is created again by the next load.
+        if (mAsyncEventLoader != null) {
+            if (mAsyncEventLoader.cancelAll())
+                mRefreshEvents = true;
+            mAsyncEventLoader.shutdown();
+        }
+
+        // A layout that has not been published yet is laid out again on the next draw. The layout
+        // thread is created again by the next background layout.
+        if (mBackgroundLayoutBatch != null) {
+            mBackgroundLayoutBatch.cancel();
+            mBackgroundLayoutBatch = null;
+            mEventsLoaded = false;
+        }
+        if (mLayoutExecutor != null) {
+            mLayoutExecutor.shutdown();
+            mLayoutExecutor = null;
+        }
+
+        // The tiles are drawn again when the view is shown again.
+        if (mDayTileCache != null)
+            mDayTileCache.clear();
+    }
+
+    @Override
+    protected void onConfigurationChanged(Configuration newConfig) {
+        super.onConfigurationChanged(newConfig);
+        invalidateDateTimeLabels();
+    }
+
+    @Override
+    protected void onWindowVisibilityChanged(int visibility) {
+        super.onWindowVisibilityChanged(visibility);
+
+        // The 24-hour format may have been changed while the view was hidden.
+        if (visibility == VISIBLE)
+            invalidateDateTimeLabels();
+        scheduleNowUpdate();
+    }
+
     // fix rotation changes
     @Override
     protected void onSizeChanged(int w, int h, int oldw, int oldh) {
@@ -480,7 +630,7 @@ public class WeekView extends View {
         mTimeTextWidth = 0;
         for (int i = 0; i < 24; i++) {
             // Measure time string and get max width.
-            String time = getDateTimeInterpreter().interpretTime(i);
+            String time = getCachingDateTimeInterpreter().interpretTime(i);
             if (time == null)
                 throw new IllegalStateException("A DateTimeInterpreter must not return null time");
             mTimeTextWidth = Math.max(mTimeTextWidth, mTimeTextPaint.measureText(time));
@@ -491,40 +641,55 @@ public class WeekView extends View {
     protected void onDraw(Canvas canvas) {
         super.onDraw(canvas);
 
+        // Only the invalidated regions have to be drawn. With hardware acceleration this is always
+        // the whole view.
+        if (!canvas.getClipBounds(mDirtyRect))
+            return;
+        FrameMetrics frame = mFrameMetrics;
+        long startTime = 0;
+        if (frame != null) {
+            frame.reset();
+            startTime = System.nanoTime();
+        }
+
         // Draw the header row.
         drawHeaderRowAndEvents(canvas);
 
         // Draw the time column and all the axes/separators.
-        drawTimeColumnAndAxes(canvas);
-    }
-
-    private void calculateHeaderHeight(){
-        //Make sure the header is the right size (depends on AllDay events)
-        boolean containsAllDayEvent = false;
-        if (mEventRects != null && mEventRects.size() > 0) {
-            for (int dayNumber = 0;
-                 dayNumber < mNumberOfVisibleDays;
-                 dayNumber++) {
-                Calendar day = (Calendar) getFirstVisibleDay().clone();
-                day.add(Calendar.DATE, dayNumber);
-                for (int i = 0; i < mEventRects.size(); i++) {
-
-                    if (isSameDay(mEventRects.get(i).event.getStartTime(), day) && mEventRects.get(i).event.isAllDay()) {
-                        containsAllDayEvent = true;
-                        break;
-                    }
-                }
-                if(containsAllDayEvent){
-                    break;
-                }
-            }
+        long timeColumnStartTime = frame != null ? System.nanoTime() : 0;
+        if (mDirtyRect.left < mHeaderColumnWidth)
+            drawTimeColumnAndAxes(canvas);
+
+        if (frame != null) {
+            long endTime = System.nanoTime();
+            frame.timeColumnNanos = endTime - timeColumnStartTime;
+            frame.totalNanos = endTime - startTime;
+            frame.gridNanos = frame.totalNanos - frame.fetchNanos - frame.eventsNanos -
+                    frame.allDayEventsNanos - frame.headerNanos - frame.timeColumnNanos;
+            mMetricsListener.onFrameDrawn(frame);
         }
+    }
+
+    /**
+     * Make sure the header is the right size (depends on AllDay events).
+     * @return True if the height of the header has changed.
+     */
+    private boolean calculateHeaderHeight(){
+        float oldHeaderHeight = mHeaderHeight;
+        boolean containsAllDayEvent = mFirstVisibleDay != null &&
+                mLayout.getSnapshot().hasAllDayEvents(getEpochDay(mFirstVisibleDay), mNumberOfVisibleDays);
         if(containsAllDayEvent) {
             mHeaderHeight = mHeaderTextHeight + (mAllDayEventHeight + mHeaderMarginBottom);
         }
         else{
             mHeaderHeight = mHeaderTextHeight;
         }
+
+        // The minimum hour height depends on the height of the header.
+        if (mHeaderHeight == oldHeaderHeight)
+            return false;
+        mAreDimensionsInvalid = true;
+        return true;
     }
 
     private void drawTimeColumnAndAxes(Canvas canvas) {
@@ -532,13 +697,22 @@ public class WeekView extends View {
         canvas.drawRect(0, mHeaderHeight + mHeaderRowPadding * 2, mHeaderColumnWidth, getHeight(), mHeaderColumnBackgroundPaint);
 
         // Clip to paint in left column only.
-        canvas.clipRect(0, mHeaderHeight + mHeaderRowPadding * 2, mHeaderColumnWidth, getHeight(), Region.Op.REPLACE);
+        clipToDirtyRect(canvas, 0, mHeaderHeight + mHeaderRowPadding * 2, mHeaderColumnWidth, getHeight());
+
+        // Replay the recorded labels, moved to the current scroll position.
+        if (mGridPicturesEnabled) {
+            canvas.save();
+            canvas.translate(0, mHeaderHeight + mHeaderRowPadding * 2 + mCurrentOrigin.y + mHeaderMarginBottom);
+            canvas.drawPicture(mTimeColumnPicture);
+            canvas.restore();
+            return;
+        }
 
         for (int i = 0; i < 24; i++) {
             float top = mHeaderHeight + mHeaderRowPadding * 2 + mCurrentOrigin.y + mHourHeight * i + mHeaderMarginBottom;
 
             // Draw the text if its y position is not outside of the visible area. The pivot point of the text is the point at the bottom-right corner.
-            String time = getDateTimeInterpreter().interpretTime(i);
+            String time = getCachingDateTimeInterpreter().interpretTime(i);
             if (time == null)
                 throw new IllegalStateException("A DateTimeInterpreter must not return null time");
             if (top < getHeight()) canvas.drawText(time, mTimeTextWidth + mHeaderColumnPadding, top + mTimeTextHeight, mTimeTextPaint);
@@ -551,9 +725,12 @@ public class WeekView extends View {
         mWidthPerDay = getWidth() - mHeaderColumnWidth - mColumnGap * (mNumberOfVisibleDays - 1);
         mWidthPerDay = mWidthPerDay/mNumberOfVisibleDays;
 
-        calculateHeaderHeight(); //Make sure the header is the right size (depends on AllDay events)
+        // Make sure the header is the right size (depends on AllDay events). Only the changed
+        // regions may be redrawn in this frame, so a different header needs another frame.
+        if (calculateHeaderHeight() && !isViewDirty())
+            invalidate();
 
-        Calendar today = today();
+        Calendar today = updateToday();
 
         if (mAreDimensionsInvalid) {
             mEffectiveMinHourHeight= Math.max(mMinHourHeight, (int) ((getHeight() - mHeaderHeight - mHeaderRowPadding * 2 - mHeaderMarginBottom) / 24));
@@ -588,6 +765,8 @@ public class WeekView extends View {
                 mNewHourHeight = mMaxHourHeight;
 
             mCurrentOrigin.y = (mCurrentOrigin.y/mHourHeight)*mNewHourHeight;
+            if (mHourHeight != mNewHourHeight)
+                invalidateEventTitleLayouts();
             mHourHeight = mNewHourHeight;
             mNewHourHeight = -1;
         }
@@ -602,6 +781,9 @@ public class WeekView extends View {
             mCurrentOrigin.y = 0;
         }
 
+        // The hour separators and the time labels only move from frame to frame.
+        mGridPicturesEnabled = canDrawPictures(canvas) && updateGridPictures();
+
         // Consider scroll offset.
         int leftDaysWithGaps = (int) -(Math.ceil(mCurrentOrigin.x / (mWidthPerDay + mColumnGap)));
         float startFromPixel = mCurrentOrigin.x + (mWidthPerDay + mColumnGap) * leftDaysWithGaps +
@@ -609,103 +791,76 @@ public class WeekView extends View {
         float startPixel = startFromPixel;
 
         // Prepare to iterate for each day.
-        Calendar day = (Calendar) today.clone();
-        day.add(Calendar.HOUR, 6);
+        Calendar day = mDrawDay;
 
         // Prepare to iterate for each hour to draw the hour lines.
         int lineCount = (int) ((getHeight() - mHeaderHeight - mHeaderRowPadding * 2 -
                 mHeaderMarginBottom) / mHourHeight) + 1;
         lineCount = (lineCount) * (mNumberOfVisibleDays+1);
-        float[] hourLines = new float[lineCount * 4];
+        if (mHourLines.length < lineCount * 4)
+            mHourLines = new float[lineCount * 4];
 
-        // Clear the cache for event rectangles.
-        if (mEventRects != null) {
-            for (EventRect eventRect: mEventRects) {
-                eventRect.rectF = null;
+        // Clip to paint events only.
+        clipToDirtyRect(canvas, mHeaderColumnWidth, mHeaderHeight + mHeaderRowPadding * 2 + mHeaderMarginBottom + mTimeTextHeight/2, getWidth(), getHeight());
+
+        // Iterate through each day. The visible days are only created again if they change.
+        int todayEpochDay = getEpochDay(today);
+        int firstVisibleDayOffset = -(Math.round(mCurrentOrigin.x / (mWidthPerDay + mColumnGap)));
+        if (mFirstVisibleDay == null || getEpochDay(mFirstVisibleDay) != todayEpochDay + firstVisibleDayOffset) {
+            Calendar oldFirstVisibleDay = mFirstVisibleDay;
+            mFirstVisibleDay = (Calendar) today.clone();
+            mFirstVisibleDay.add(Calendar.DATE, firstVisibleDayOffset);
+            if (mScrollListener != null) {
+                mScrollListener.onFirstVisibleDayChanged(mFirstVisibleDay, oldFirstVisibleDay);
             }
         }
+        int lastVisibleDayOffset = leftDaysWithGaps + mNumberOfVisibleDays - 1;
+        if (mLastVisibleDay == null || getEpochDay(mLastVisibleDay) != todayEpochDay + lastVisibleDayOffset) {
+            mLastVisibleDay = (Calendar) today.clone();
+            mLastVisibleDay.add(Calendar.DATE, lastVisibleDayOffset);
+        }
 
-        // Clip to paint events only.
-        canvas.clipRect(mHeaderColumnWidth, mHeaderHeight + mHeaderRowPadding * 2 + mHeaderMarginBottom + mTimeTextHeight/2, getWidth(), getHeight(), Region.Op.REPLACE);
-
-        // Iterate through each day.
-        Calendar oldFirstVisibleDay = mFirstVisibleDay;
-        mFirstVisibleDay = (Calendar) today.clone();
-        mFirstVisibleDay.add(Calendar.DATE, -(Math.round(mCurrentOrigin.x / (mWidthPerDay + mColumnGap))));
-        if(!mFirstVisibleDay.equals(oldFirstVisibleDay) && mScrollListener != null){
-            mScrollListener.onFirstVisibleDayChanged(mFirstVisibleDay, oldFirstVisibleDay);
+        // Get more events if necessary. We want to store the events 3 months beforehand.
+        day.setTimeInMillis(today.getTimeInMillis());
+        day.add(Calendar.DATE, leftDaysWithGaps);
+        if (!mEventsLoaded || mRefreshEvents ||
+                (mFetchedPeriod != (int) mWeekViewLoader.toWeekViewPeriodIndex(day) &&
+                        Math.abs(mFetchedPeriod - mWeekViewLoader.toWeekViewPeriodIndex(day)) > 0.5)) {
+            long fetchStartTime = mFrameMetrics != null ? System.nanoTime() : 0;
+            getMoreEvents(day);
+            mRefreshEvents = false;
+            if (mFrameMetrics != null)
+                mFrameMetrics.fetchNanos = System.nanoTime() - fetchStartTime;
         }
+
+        // Calculate where the visible events are drawn.
+        computeEventDrawCommands(todayEpochDay + leftDaysWithGaps, startFromPixel);
+        mAreDayTilesDrawn = mDayTileCache != null && beginDayTileFrame();
         for (int dayNumber = leftDaysWithGaps + 1;
              dayNumber <= leftDaysWithGaps + mNumberOfVisibleDays + 1;
              dayNumber++) {
 
+            // Skip the days that have not been invalidated.
+            if (!isDayDirty(startPixel)) {
+                startPixel += mWidthPerDay + mColumnGap;
+                continue;
+            }
+
             // Check if the day is today.
-            day = (Calendar) today.clone();
-            mLastVisibleDay = (Calendar) day.clone();
+            day.setTimeInMillis(today.getTimeInMillis());
             day.add(Calendar.DATE, dayNumber - 1);
-            mLastVisibleDay.add(Calendar.DATE, dayNumber - 2);
-            boolean sameDay = isSameDay(day, today);
-
-            // Get more events if necessary. We want to store the events 3 months beforehand. Get
-            // events only when it is the first iteration of the loop.
-            if (mEventRects == null || mRefreshEvents ||
-                    (dayNumber == leftDaysWithGaps + 1 && mFetchedPeriod != (int) mWeekViewLoader.toWeekViewPeriodIndex(day) &&
-                            Math.abs(mFetchedPeriod - mWeekViewLoader.toWeekViewPeriodIndex(day)) > 0.5)) {
-                getMoreEvents(day);
-                mRefreshEvents = false;
-            }
+            boolean sameDay = dayNumber == 1;
 
-            // Draw background color for each day.
+            // Draw the day from its tile if it has only moved horizontally.
             float start =  (startPixel < mHeaderColumnWidth ? mHeaderColumnWidth : startPixel);
-            if (mWidthPerDay + startPixel - start > 0){
-                if (mShowDistinctPastFutureColor){
-                    boolean isWeekend = day.get(Calendar.DAY_OF_WEEK) == Calendar.SATURDAY || day.get(Calendar.DAY_OF_WEEK) == Calendar.SUNDAY;
-                    Paint pastPaint = isWeekend && mShowDistinctWeekendColor ? mPastWeekendBackgroundPaint : mPastBackgroundPaint;
-                    Paint futurePaint = isWeekend && mShowDistinctWeekendColor ? mFutureWeekendBackgroundPaint : mFutureBackgroundPaint;
-                    float startY = mHeaderHeight + mHeaderRowPadding * 2 + mTimeTextHeight/2 + mHeaderMarginBottom + mCurrentOrigin.y;
-
-                    if (sameDay){
-                        Calendar now = Calendar.getInstance();
-                        float beforeNow = (now.get(Calendar.HOUR_OF_DAY) + now.get(Calendar.MINUTE)/60.0f) * mHourHeight;
-                        canvas.drawRect(start, startY, startPixel + mWidthPerDay, startY+beforeNow, pastPaint);
-                        canvas.drawRect(start, startY+beforeNow, startPixel + mWidthPerDay, getHeight(), futurePaint);
-                    }
-                    else if (day.before(today)) {
-                        canvas.drawRect(start, startY, startPixel + mWidthPerDay, getHeight(), pastPaint);
-                    }
-                    else {
-                        canvas.drawRect(start, startY, startPixel + mWidthPerDay, getHeight(), futurePaint);
-                    }
-                }
-                else {
-                    canvas.drawRect(start, mHeaderHeight + mHeaderRowPadding * 2 + mTimeTextHeight / 2 + mHeaderMarginBottom, startPixel + mWidthPerDay, getHeight(), sameDay ? mTodayBackgroundPaint : mDayBackgroundPaint);
-                }
-            }
-
-            // Prepare the separator lines for hours.
-            int i = 0;
-            for (int hourNumber = 0; hourNumber < 24; hourNumber++) {
-                float top = mHeaderHeight + mHeaderRowPadding * 2 + mCurrentOrigin.y + mHourHeight * hourNumber + mTimeTextHeight/2 + mHeaderMarginBottom;
-                if (top > mHeaderHeight + mHeaderRowPadding * 2 + mTimeTextHeight/2 + mHeaderMarginBottom - mHourSeparatorHeight && top < getHeight() && startPixel + mWidthPerDay - start > 0){
-                    hourLines[i * 4] = start;
-                    hourLines[i * 4 + 1] = top;
-                    hourLines[i * 4 + 2] = startPixel + mWidthPerDay;
-                    hourLines[i * 4 + 3] = top;
-                    i++;
-                }
-            }
-
-            // Draw the lines for hours.
-            canvas.drawLines(hourLines, mHourSeparatorPaint);
-
-            // Draw the events.
-            drawEvents(day, startPixel, canvas);
+            int dayIndex = dayNumber - leftDaysWithGaps - 1;
+            if (!drawDayTile(todayEpochDay + dayNumber - 1, dayIndex, day, today, sameDay, startPixel, canvas))
+                drawDayColumn(dayIndex, day, today, sameDay, start, startPixel, canvas);
 
             // Draw the line at the current time.
             if (mShowNowLine && sameDay){
                 float startY = mHeaderHeight + mHeaderRowPadding * 2 + mTimeTextHeight/2 + mHeaderMarginBottom + mCurrentOrigin.y;
-                Calendar now = Calendar.getInstance();
-                float beforeNow = (now.get(Calendar.HOUR_OF_DAY) + now.get(Calendar.MINUTE)/60.0f) * mHourHeight;
+                float beforeNow = mNowMinuteOfDay / 60.0f * mHourHeight;
                 canvas.drawLine(start, startY + beforeNow, startPixel + mWidthPerDay, startY + beforeNow, mNowLinePaint);
             }
 
@@ -713,12 +868,17 @@ public class WeekView extends View {
             startPixel += mWidthPerDay + mColumnGap;
         }
 
+        // The header row does not change when scrolling vertically.
+        if (mDirtyRect.top >= mHeaderHeight + mHeaderRowPadding * 2)
+            return;
+
         // Hide everything in the first cell (top left corner).
-        canvas.clipRect(0, 0, mTimeTextWidth + mHeaderColumnPadding * 2, mHeaderHeight + mHeaderRowPadding * 2, Region.Op.REPLACE);
+        long headerStartTime = mFrameMetrics != null ? System.nanoTime() : 0;
+        clipToDirtyRect(canvas, 0, 0, mTimeTextWidth + mHeaderColumnPadding * 2, mHeaderHeight + mHeaderRowPadding * 2);
         canvas.drawRect(0, 0, mTimeTextWidth + mHeaderColumnPadding * 2, mHeaderHeight + mHeaderRowPadding * 2, mHeaderBackgroundPaint);
 
         // Clip to paint header row only.
-        canvas.clipRect(mHeaderColumnWidth, 0, getWidth(), mHeaderHeight + mHeaderRowPadding * 2, Region.Op.REPLACE);
+        clipToDirtyRect(canvas, mHeaderColumnWidth, 0, getWidth(), mHeaderHeight + mHeaderRowPadding * 2);
 
         // Draw the header background.
         canvas.drawRect(0, 0, getWidth(), mHeaderHeight + mHeaderRowPadding * 2, mHeaderBackgroundPaint);
@@ -726,20 +886,301 @@ public class WeekView extends View {
         // Draw the header row texts.
         startPixel = startFromPixel;
         for (int dayNumber=leftDaysWithGaps+1; dayNumber <= leftDaysWithGaps + mNumberOfVisibleDays + 1; dayNumber++) {
+            if (!isDayDirty(startPixel)) {
+                startPixel += mWidthPerDay + mColumnGap;
+                continue;
+            }
+
             // Check if the day is today.
-            day = (Calendar) today.clone();
+            day.setTimeInMillis(today.getTimeInMillis());
             day.add(Calendar.DATE, dayNumber - 1);
-            boolean sameDay = isSameDay(day, today);
+            boolean sameDay = dayNumber == 1;
 
             // Draw the day labels.
-            String dayLabel = getDateTimeInterpreter().interpretDate(day);
+            String dayLabel = getCachingDateTimeInterpreter().interpretDate(day);
             if (dayLabel == null)
                 throw new IllegalStateException("A DateTimeInterpreter must not return null date");
             canvas.drawText(dayLabel, startPixel + mWidthPerDay / 2, mHeaderTextHeight + mHeaderRowPadding, sameDay ? mTodayHeaderTextPaint : mHeaderTextPaint);
-            drawAllDayEvents(day, startPixel, canvas);
+            drawEvents(dayNumber - leftDaysWithGaps - 1, true, canvas);
             startPixel += mWidthPerDay + mColumnGap;
         }
 
+        if (mFrameMetrics != null)
+            mFrameMetrics.headerNanos = System.nanoTime() - headerStartTime - mFrameMetrics.allDayEventsNanos;
+    }
+
+    /**
+     * Draw the background, the hour separators and the timed events of a day column.
+     * @param dayIndex The index of the day column in the visible days.
+     * @param day The day.
+     * @param today The start of the current day.
+     * @param sameDay True if the day is today.
+     * @param start The left position of the visible part of the column.
+     * @param startPixel The left position of the column.
+     * @param canvas The canvas to draw upon.
+     */
+    private void drawDayColumn(int dayIndex, Calendar day, Calendar today, boolean sameDay, float start, float startPixel, Canvas canvas) {
+        // Draw background color for each day.
+        if (mWidthPerDay + startPixel - start > 0){
+            if (mShowDistinctPastFutureColor){
+                boolean isWeekend = day.get(Calendar.DAY_OF_WEEK) == Calendar.SATURDAY || day.get(Calendar.DAY_OF_WEEK) == Calendar.SUNDAY;
+                Paint pastPaint = isWeekend && mShowDistinctWeekendColor ? mPastWeekendBackgroundPaint : mPastBackgroundPaint;
+                Paint futurePaint = isWeekend && mShowDistinctWeekendColor ? mFutureWeekendBackgroundPaint : mFutureBackgroundPaint;
+                float startY = mHeaderHeight + mHeaderRowPadding * 2 + mTimeTextHeight/2 + mHeaderMarginBottom + mCurrentOrigin.y;
+
+                if (sameDay){
+                    float beforeNow = mNowMinuteOfDay / 60.0f * mHourHeight;
+                    canvas.drawRect(start, startY, startPixel + mWidthPerDay, startY+beforeNow, pastPaint);
+                    canvas.drawRect(start, startY+beforeNow, startPixel + mWidthPerDay, getHeight(), futurePaint);
+                }
+                else if (day.before(today)) {
+                    canvas.drawRect(start, startY, startPixel + mWidthPerDay, getHeight(), pastPaint);
+                }
+                else {
+                    canvas.drawRect(start, startY, startPixel + mWidthPerDay, getHeight(), futurePaint);
+                }
+            }
+            else {
+                canvas.drawRect(start, mHeaderHeight + mHeaderRowPadding * 2 + mTimeTextHeight / 2 + mHeaderMarginBottom, startPixel + mWidthPerDay, getHeight(), sameDay ? mTodayBackgroundPaint : mDayBackgroundPaint);
+            }
+        }
+
+        // Replay the recorded lines, moved to the current position of the day. The part that is
+        // outside of the visible area is clipped.
+        if (mGridPicturesEnabled) {
+            canvas.save();
+            canvas.translate(startPixel, mHeaderHeight + mHeaderRowPadding * 2 + mCurrentOrigin.y + mTimeTextHeight/2 + mHeaderMarginBottom);
+            canvas.drawPicture(mHourLinesPicture);
+            canvas.restore();
+            drawEvents(dayIndex, false, canvas);
+            return;
+        }
+
+        // Prepare the separator lines for hours.
+        int i = 0;
+        for (int hourNumber = 0; hourNumber < 24; hourNumber++) {
+            float top = mHeaderHeight + mHeaderRowPadding * 2 + mCurrentOrigin.y + mHourHeight * hourNumber + mTimeTextHeight/2 + mHeaderMarginBottom;
+            if (top > mHeaderHeight + mHeaderRowPadding * 2 + mTimeTextHeight/2 + mHeaderMarginBottom - mHourSeparatorHeight && top < getHeight() && startPixel + mWidthPerDay - start > 0){
+                mHourLines[i * 4] = start;
+                mHourLines[i * 4 + 1] = top;
+                mHourLines[i * 4 + 2] = startPixel + mWidthPerDay;
+                mHourLines[i * 4 + 3] = top;
+                i++;
+            }
+        }
+
+        // Draw the lines for hours.
+        canvas.drawLines(mHourLines, 0, i * 4, mHourSeparatorPaint);
+
+        // Draw the events.
+        drawEvents(dayIndex, false, canvas);
+    }
+
+    /**
+     * Start a frame of the day tiles. The tiles are drawn again if they have moved vertically or
+     * the hours have been zoomed. While that happens in every frame, as when scrolling vertically
+     * or zooming, the tiles would be drawn again in every frame, which is slower than drawing the
+     * days directly. So the tiles are only used once the hours have stopped moving.
+     * @return True if the days are drawn from their tiles in this frame.
+     */
+    private boolean beginDayTileFrame() {
+        float top = mHeaderHeight + mHeaderRowPadding * 2 + mHeaderMarginBottom + mTimeTextHeight/2;
+        if (mCurrentOrigin.y != mTileOriginY || mHourHeight != mTileHourHeight || top != mTileTop) {
+            mTileOriginY = mCurrentOrigin.y;
+            mTileHourHeight = mHourHeight;
+            mTileTop = top;
+            mTileGeneration++;
+            return false;
+        }
+        mDayTileCache.beginFrame((int) Math.ceil(mWidthPerDay), (int) Math.ceil(getHeight() - top), mTileGeneration);
+        return true;
+    }
+
+    /**
+     * Draw a day column by copying its tile, see {@link #setDayTileCacheSize(int)}. The tile is
+     * drawn first if it is not valid anymore.
+     * @param epochDay The epoch day of the day.
+     * @param dayIndex The index of the day column in the visible days.
+     * @param day The day.
+     * @param today The start of the current day.
+     * @param sameDay True if the day is today.
+     * @param startPixel The left position of the column.
+     * @param canvas The canvas to draw upon.
+     * @return False if the day column has to be drawn directly.
+     */
+    private boolean drawDayTile(int epochDay, int dayIndex, Calendar day, Calendar today, boolean sameDay, float startPixel, Canvas canvas) {
+        DayTileCache dayTileCache = mDayTileCache;
+        if (dayTileCache == null || !mAreDayTilesDrawn)
+            return false;
+
+        // Partially visible columns are clipped, so their tiles would be incomplete. Today with
+        // distinct past and future colors changes with the time.
+        if (startPixel < mHeaderColumnWidth || startPixel + mWidthPerDay > getWidth() || (sameDay && mShowDistinctPastFutureColor))
+            return false;
+
+        float top = mHeaderHeight + mHeaderRowPadding * 2 + mHeaderMarginBottom + mTimeTextHeight/2;
+        List<WeekViewLayout.Entry> entries = mLayout.getSnapshot().getEntriesOfDay(epochDay);
+        int state = sameDay ? 0 : day.before(today) ? -1 : 1;
+        Bitmap bitmap = dayTileCache.get(epochDay, entries, state);
+        if (bitmap == null) {
+            bitmap = dayTileCache.obtain(epochDay, entries, state);
+            if (bitmap == null)
+                return false;
+            mTileCanvas.setBitmap(bitmap);
+            mTileCanvas.save();
+            mTileCanvas.translate(-startPixel, -top);
+            drawDayColumn(dayIndex, day, today, sameDay, startPixel, startPixel, mTileCanvas);
+            mTileCanvas.restore();
+            mTileCanvas.setBitmap(null);
+        }
+        canvas.drawBitmap(bitmap, startPixel, top, null);
+        return true;
+    }
+
+    /**
+     * Check whether pictures can be drawn on a canvas. Hardware accelerated canvases only support
+     * pictures since Android 6.0.
+     * @param canvas The canvas.
+     * @return True if pictures can be drawn.
+     */
+    private static boolean canDrawPictures(Canvas canvas) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M || Build.VERSION.SDK_INT < Build.VERSION_CODES.HONEYCOMB)
+            return true;
+        return !canvas.isHardwareAccelerated();
+    }
+
+    /**
+     * Check whether the last frame copied the fully visible days from their tiles, see
+     * {@link #setDayTileCacheSize(int)}.
+     * @return True if the day tiles were drawn.
+     */
+    boolean areDayTilesDrawn() {
+        return mAreDayTilesDrawn;
+    }
+
+    /**
+     * Check whether the last frame drew the grid from its pictures, see
+     * {@link #updateGridPictures()}.
+     * @return True if the grid pictures were drawn.
+     */
+    boolean areGridPicturesDrawn() {
+        return mGridPicturesEnabled;
+    }
+
+    /**
+     * Record the hour separators of one day and the labels of the time column again if they have
+     * changed. They change with zooming, a different width of the days and style changes, but not
+     * when the events change or the view is scrolled.
+     * @return True if the pictures are recorded.
+     */
+    private boolean updateGridPictures() {
+        if (mWidthPerDay <= 0 || mHourHeight <= 0)
+            return false;
+        if (mGridPictureGeneration == mGridGeneration && mGridPictureHourHeight == mHourHeight && mGridPictureWidthPerDay == mWidthPerDay)
+            return true;
+
+        if (mHourLinesPicture == null) {
+            mHourLinesPicture = new Picture();
+            mTimeColumnPicture = new Picture();
+        }
+        Canvas canvas = mHourLinesPicture.beginRecording((int) Math.ceil(mWidthPerDay), mHourHeight * 24);
+        for (int hourNumber = 0; hourNumber < 24; hourNumber++) {
+            mHourLinesPictureLines[hourNumber * 4] = 0;
+            mHourLinesPictureLines[hourNumber * 4 + 1] = mHourHeight * hourNumber;
+            mHourLinesPictureLines[hourNumber * 4 + 2] = mWidthPerDay;
+            mHourLinesPictureLines[hourNumber * 4 + 3] = mHourHeight * hourNumber;
+        }
+        canvas.drawLines(mHourLinesPictureLines, 0, 24 * 4, mHourSeparatorPaint);
+        mHourLinesPicture.endRecording();
+
+        canvas = mTimeColumnPicture.beginRecording((int) Math.ceil(mHeaderColumnWidth), mHourHeight * 24);
+        for (int i = 0; i < 24; i++) {
+            // The pivot point of the text is the point at the bottom-right corner.
+            String time = getCachingDateTimeInterpreter().interpretTime(i);
+            if (time == null)
+                throw new IllegalStateException("A DateTimeInterpreter must not return null time");
+            canvas.drawText(time, mTimeTextWidth + mHeaderColumnPadding, mHourHeight * i + mTimeTextHeight, mTimeTextPaint);
+        }
+        mTimeColumnPicture.endRecording();
+
+        mGridPictureGeneration = mGridGeneration;
+        mGridPictureHourHeight = mHourHeight;
+        mGridPictureWidthPerDay = mWidthPerDay;
+        return true;
+    }
+
+    /**
+     * Clip to a part of the view, but only where it has been invalidated.
+     * @param canvas The canvas to clip.
+     */
+    private void clipToDirtyRect(Canvas canvas, float left, float top, float right, float bottom) {
+        canvas.clipRect(mDirtyRect, Region.Op.REPLACE);
+        canvas.clipRect(left, top, right, bottom);
+    }
+
+    /**
+     * @param startPixel The left position of a day column.
+     * @return True if the column of the day has been invalidated.
+     */
+    private boolean isDayDirty(float startPixel) {
+        return startPixel < mDirtyRect.right && startPixel + mWidthPerDay > mDirtyRect.left;
+    }
+
+    /**
+     * @return True if the whole view has been invalidated.
+     */
+    private boolean isViewDirty() {
+        return mDirtyRect.left <= 0 && mDirtyRect.top <= 0 && mDirtyRect.right >= getWidth() && mDirtyRect.bottom >= getHeight();
+    }
+
+    /**
+     * Update the reused calendar {@link #mToday} and the minute of the day of the current time.
+     * They only change once a minute, so the calendars are only updated when the minute in which
+     * they were updated has passed.
+     * @return The start of the current day.
+     */
+    private Calendar updateToday() {
+        long now = System.currentTimeMillis();
+        if (now >= mNowMinuteStart && now < mNowMinuteStart + 60000)
+            return mToday;
+
+        mNow.setTimeInMillis(now);
+        mNowMinuteOfDay = mNow.get(Calendar.HOUR_OF_DAY) * 60 + mNow.get(Calendar.MINUTE);
+        mNowMinuteStart = now - mNow.get(Calendar.SECOND) * 1000 - mNow.get(Calendar.MILLISECOND);
+        mToday.setTimeInMillis(now);
+        mToday.set(Calendar.HOUR_OF_DAY, 0);
+        mToday.set(Calendar.MINUTE, 0);
+        mToday.set(Calendar.SECOND, 0);
+        mToday.set(Calendar.MILLISECOND, 0);
+        return mToday;
+    }
+
+    /**
+     * Update the now line and the past and future colors once a minute, but only while they are
+     * shown.
+     */
+    private void scheduleNowUpdate() {
+        removeCallbacks(mNowUpdater);
+        if ((mShowNowLine || mShowDistinctPastFutureColor) && getWindowVisibility() == VISIBLE) {
+            // Wake up right after the next minute starts.
+            postDelayed(mNowUpdater, 60000 - System.currentTimeMillis() % 60000);
+        }
+    }
+
+    /**
+     * Redraw the part of the column of today between two times of the day, where the now line
+     * has moved and the past color has grown.
+     * @param oldMinuteOfDay The minute of the day of the old position of the now line.
+     * @param newMinuteOfDay The minute of the day of the new position of the now line.
+     */
+    private void invalidateNow(int oldMinuteOfDay, int newMinuteOfDay) {
+        float left = Math.max(getDayColumnLeft(0), mHeaderColumnWidth);
+        float right = Math.min(getDayColumnLeft(0) + mWidthPerDay, getWidth());
+        float startY = mHeaderHeight + mHeaderRowPadding * 2 + mTimeTextHeight/2 + mHeaderMarginBottom + mCurrentOrigin.y;
+        float top = Math.max(startY + Math.min(oldMinuteOfDay, newMinuteOfDay) / 60.0f * mHourHeight - mNowLineThickness, mHeaderHeight + mHeaderRowPadding * 2);
+        float bottom = Math.min(startY + Math.max(oldMinuteOfDay, newMinuteOfDay) / 60.0f * mHourHeight + mNowLineThickness, getHeight());
+        if (left < right && top < bottom)
+            invalidate((int) left, (int) top, (int) Math.ceil(right), (int) Math.ceil(bottom));
     }
 
     /**
@@ -749,6 +1190,28 @@ public class WeekView extends View {
      * @return The time and date at the clicked position.
      */
     private Calendar getTimeFromPoint(float x, float y){
+        int dayOffset = getDayOffsetFromPoint(x);
+        if (dayOffset == NO_DAY)
+            return null;
+
+        Calendar day = today();
+        day.add(Calendar.DATE, dayOffset);
+        float pixelsFromZero = y - mCurrentOrigin.y - mHeaderHeight
+                - mHeaderRowPadding * 2 - mTimeTextHeight/2 - mHeaderMarginBottom;
+        int hour = (int)(pixelsFromZero / mHourHeight);
+        int minute = (int) (60 * (pixelsFromZero - hour * mHourHeight) / mHourHeight);
+        day.add(Calendar.HOUR, hour);
+        day.set(Calendar.MINUTE, minute);
+        return day;
+    }
+
+    /**
+     * Get the day column at a horizontal position.
+     * @param x The x position.
+     * @return The number of days between today and the day at the position or {@link #NO_DAY} if
+     * there is no day at the position.
+     */
+    private int getDayOffsetFromPoint(float x) {
         int leftDaysWithGaps = (int) -(Math.ceil(mCurrentOrigin.x / (mWidthPerDay + mColumnGap)));
         float startPixel = mCurrentOrigin.x + (mWidthPerDay + mColumnGap) * leftDaysWithGaps +
                 mHeaderColumnWidth;
@@ -757,123 +1220,209 @@ public class WeekView extends View {
              dayNumber++) {
             float start =  (startPixel < mHeaderColumnWidth ? mHeaderColumnWidth : startPixel);
             if (mWidthPerDay + startPixel - start > 0 && x > start && x < startPixel + mWidthPerDay){
-                Calendar day = today();
-                day.add(Calendar.DATE, dayNumber - 1);
-                float pixelsFromZero = y - mCurrentOrigin.y - mHeaderHeight
-                        - mHeaderRowPadding * 2 - mTimeTextHeight/2 - mHeaderMarginBottom;
-                int hour = (int)(pixelsFromZero / mHourHeight);
-                int minute = (int) (60 * (pixelsFromZero - hour * mHourHeight) / mHourHeight);
-                day.add(Calendar.HOUR, hour);
-                day.set(Calendar.MINUTE, minute);
-                return day;
+                return dayNumber - 1;
             }
             startPixel += mWidthPerDay + mColumnGap;
         }
-        return null;
+        return NO_DAY;
+    }
+
+    /**
+     * Get the rectangle in which the event of a draw command was drawn.
+     * @param command The index of the draw command.
+     * @return A new rectangle.
+     */
+    private RectF getCommandRect(int command) {
+        return new RectF(mLayout.getCommandLeft(command), mLayout.getCommandTop(command),
+                mLayout.getCommandRight(command), mLayout.getCommandBottom(command));
     }
 
     /**
-     * Draw all the events of a particular day.
-     * @param date The day.
-     * @param startFromPixel The left position of the day area. The events will never go any left from this value.
+     * Calculate the rectangles of the events that are visible in this frame.
+     * @param firstDay The epoch day of the leftmost day column.
+     * @param startFromPixel The left position of the leftmost day column.
+     */
+    private void computeEventDrawCommands(int firstDay, float startFromPixel) {
+        WeekViewLayout.Viewport viewport = mViewport;
+        viewport.firstDay = firstDay;
+        viewport.dayCount = mNumberOfVisibleDays + 1;
+        viewport.startPixel = startFromPixel;
+        viewport.widthPerDay = mWidthPerDay;
+        viewport.columnGap = mColumnGap;
+        viewport.hourHeight = mHourHeight;
+        viewport.originY = mCurrentOrigin.y;
+        viewport.eventsTop = mHeaderHeight + mHeaderRowPadding * 2 + mHeaderMarginBottom + mTimeTextHeight/2;
+        viewport.allDayEventsTop = mHeaderRowPadding * 2 + mHeaderMarginBottom + mTimeTextHeight/2 + mEventMarginVertical;
+        viewport.allDayEventHeight = mAllDayEventHeight;
+        viewport.eventMarginVertical = mEventMarginVertical;
+        viewport.overlappingEventGap = mOverlappingEventGap;
+        viewport.clipLeft = mHeaderColumnWidth;
+        viewport.width = getWidth();
+        viewport.height = getHeight();
+        mLayout.computeDrawCommands(viewport);
+    }
+
+    /**
+     * Draw the events of a particular day by replaying the draw commands of the day.
+     * @param dayIndex The index of the day column in the visible days.
+     * @param allDay Whether to draw the all-day events or the timed events.
      * @param canvas The canvas to draw upon.
      */
-    private void drawEvents(Calendar date, float startFromPixel, Canvas canvas) {
-        if (mEventRects != null && mEventRects.size() > 0) {
-            for (int i = 0; i < mEventRects.size(); i++) {
-                if (isSameDay(mEventRects.get(i).event.getStartTime(), date) && !mEventRects.get(i).event.isAllDay()){
-
-                    // Calculate top.
-                    float top = mHourHeight * 24 * mEventRects.get(i).top / 1440 + mCurrentOrigin.y + mHeaderHeight + mHeaderRowPadding * 2 + mHeaderMarginBottom + mTimeTextHeight/2 + mEventMarginVertical;
-
-                    // Calculate bottom.
-                    float bottom = mEventRects.get(i).bottom;
-                    bottom = mHourHeight * 24 * bottom / 1440 + mCurrentOrigin.y + mHeaderHeight + mHeaderRowPadding * 2 + mHeaderMarginBottom + mTimeTextHeight/2 - mEventMarginVertical;
-
-                    // Calculate left and right.
-                    float left = startFromPixel + mEventRects.get(i).left * mWidthPerDay;
-                    if (left < startFromPixel)
-                        left += mOverlappingEventGap;
-                    float right = left + mEventRects.get(i).width * mWidthPerDay;
-                    if (right < startFromPixel + mWidthPerDay)
-                        right -= mOverlappingEventGap;
-
-                    // Draw the event and the event name on top of it.
-                    if (left < right &&
-                            left < getWidth() &&
-                            top < getHeight() &&
-                            right > mHeaderColumnWidth &&
-                            bottom > mHeaderHeight + mHeaderRowPadding * 2 + mTimeTextHeight / 2 + mHeaderMarginBottom
-                            ) {
-                        mEventRects.get(i).rectF = new RectF(left, top, right, bottom);
-                        mEventBackgroundPaint.setColor(mEventRects.get(i).event.getColor() == 0 ? mDefaultEventColor : mEventRects.get(i).event.getColor());
-                        canvas.drawRoundRect(mEventRects.get(i).rectF, mEventCornerRadius, mEventCornerRadius, mEventBackgroundPaint);
-                        drawEventTitle(mEventRects.get(i).event, mEventRects.get(i).rectF, canvas, top, left);
-                    }
-                    else
-                        mEventRects.get(i).rectF = null;
+    private void drawEvents(int dayIndex, boolean allDay, Canvas canvas) {
+        FrameMetrics frame = mFrameMetrics;
+        long startTime = frame != null ? System.nanoTime() : 0;
+        int start = mLayout.getCommandStart(dayIndex, allDay);
+        int end = mLayout.getCommandEnd(dayIndex, allDay);
+        int i = start;
+        while (i < end) {
+            // The events are ordered by their start times, so a group of overlapping events ends
+            // with the first event that starts below all the events before it.
+            float groupBottom = mLayout.getCommandBottom(i);
+            boolean isGroupNarrow = mLayout.getCommandRight(i) - mLayout.getCommandLeft(i) < mEventGroupMinWidth;
+            int groupEnd = i + 1;
+            while (groupEnd < end && mLayout.getCommandTop(groupEnd) < groupBottom) {
+                groupBottom = Math.max(groupBottom, mLayout.getCommandBottom(groupEnd));
+                isGroupNarrow |= mLayout.getCommandRight(groupEnd) - mLayout.getCommandLeft(groupEnd) < mEventGroupMinWidth;
+                groupEnd++;
+            }
+
+            if (isGroupNarrow && groupEnd - i > 1) {
+                drawEventGroup(i, groupEnd, groupBottom, canvas);
+                i = groupEnd;
+            }
+            else {
+                for (; i < groupEnd; i++) {
+                    drawEvent(i, canvas, frame);
                 }
             }
         }
+
+        if (frame != null) {
+            long duration = System.nanoTime() - startTime;
+            if (allDay)
+                frame.allDayEventsNanos += duration;
+            else
+                frame.eventsNanos += duration;
+            frame.drawnEventCount += end - start;
+        }
     }
 
     /**
-     * Draw all the Allday-events of a particular day.
-     * @param date The day.
-     * @param startFromPixel The left position of the day area. The events will never go any left from this value.
+     * Draw the event of a draw command. Events that are smaller than the detail thresholds are
+     * drawn as plain rectangles without their titles.
+     * @param command The index of the draw command.
      * @param canvas The canvas to draw upon.
+     * @param frame The metrics of the frame, or null if they are not collected.
      */
-    private void drawAllDayEvents(Calendar date, float startFromPixel, Canvas canvas) {
-        if (mEventRects != null && mEventRects.size() > 0) {
-            for (int i = 0; i < mEventRects.size(); i++) {
-                if (isSameDay(mEventRects.get(i).event.getStartTime(), date) && mEventRects.get(i).event.isAllDay()){
-
-                    // Calculate top.
-                    float top = mHeaderRowPadding * 2 + mHeaderMarginBottom +  + mTimeTextHeight/2 + mEventMarginVertical;
-
-                    // Calculate bottom.
-                    float bottom = top + mEventRects.get(i).bottom;
-
-                    // Calculate left and right.
-                    float left = startFromPixel + mEventRects.get(i).left * mWidthPerDay;
-                    if (left < startFromPixel)
-                        left += mOverlappingEventGap;
-                    float right = left + mEventRects.get(i).width * mWidthPerDay;
-                    if (right < startFromPixel + mWidthPerDay)
-                        right -= mOverlappingEventGap;
-
-                    // Draw the event and the event name on top of it.
-                    if (left < right &&
-                            left < getWidth() &&
-                            top < getHeight() &&
-                            right > mHeaderColumnWidth &&
-                            bottom > 0
-                            ) {
-                        mEventRects.get(i).rectF = new RectF(left, top, right, bottom);
-                        mEventBackgroundPaint.setColor(mEventRects.get(i).event.getColor() == 0 ? mDefaultEventColor : mEventRects.get(i).event.getColor());
-                        canvas.drawRoundRect(mEventRects.get(i).rectF, mEventCornerRadius, mEventCornerRadius, mEventBackgroundPaint);
-                        drawEventTitle(mEventRects.get(i).event, mEventRects.get(i).rectF, canvas, top, left);
-                    }
-                    else
-                        mEventRects.get(i).rectF = null;
-                }
-            }
+    private void drawEvent(int command, Canvas canvas, FrameMetrics frame) {
+        float left = mLayout.getCommandLeft(command);
+        float top = mLayout.getCommandTop(command);
+        mEventRectF.set(left, top, mLayout.getCommandRight(command), mLayout.getCommandBottom(command));
+        int color = mLayout.getCommandColor(command);
+        mEventBackgroundPaint.setColor(color == 0 ? mDefaultEventColor : color);
+        if (mEventRectF.height() < mEventDetailMinHeight || mEventRectF.width() < mEventDetailMinWidth) {
+            canvas.drawRect(mEventRectF, mEventBackgroundPaint);
+            return;
+        }
+
+        // Only the events with titles need their entries.
+        canvas.drawRoundRect(mEventRectF, mEventCornerRadius, mEventCornerRadius, mEventBackgroundPaint);
+        EventRect eventRect = (EventRect) mLayout.getCommandEntry(command);
+        if (frame == null) {
+            drawEventTitle(eventRect, mEventRectF, canvas, top, left);
+        }
+        else {
+            long titleStartTime = System.nanoTime();
+            drawEventTitle(eventRect, mEventRectF, canvas, top, left);
+            frame.eventTitlesNanos += System.nanoTime() - titleStartTime;
         }
     }
 
+    /**
+     * Draw a group of overlapping events as a single block with the number of events in it. This
+     * is used when the events would be too narrow to be told apart.
+     * @param start The first draw command of the group.
+     * @param end The index after the last draw command of the group.
+     * @param bottom The bottom of the lowest event in the group.
+     * @param canvas The canvas to draw upon.
+     */
+    private void drawEventGroup(int start, int end, float bottom, Canvas canvas) {
+        float left = mLayout.getCommandLeft(start);
+        float right = mLayout.getCommandRight(start);
+        for (int i = start + 1; i < end; i++) {
+            left = Math.min(left, mLayout.getCommandLeft(i));
+            right = Math.max(right, mLayout.getCommandRight(i));
+        }
+        float top = mLayout.getCommandTop(start);
+        mEventRectF.set(left, top, right, bottom);
+        mEventBackgroundPaint.setColor(mDefaultEventColor);
+        if (mEventRectF.height() < mEventDetailMinHeight || mEventRectF.width() < mEventDetailMinWidth) {
+            canvas.drawRect(mEventRectF, mEventBackgroundPaint);
+            return;
+        }
+        canvas.drawRoundRect(mEventRectF, mEventCornerRadius, mEventCornerRadius, mEventBackgroundPaint);
+
+        // Draw the number of events if it fits into the block.
+        int count = end - start;
+        String title = mEventGroupTitles.get(count);
+        if (title == null) {
+            title = getResources().getQuantityString(R.plurals.week_view_event_group, count, count);
+            mEventGroupTitles.put(count, title);
+        }
+        float ascent = mEventTextPaint.ascent();
+        if (bottom - top - mEventPadding * 2 < mEventTextPaint.descent() - ascent ||
+                right - left - mEventPadding * 2 < mEventTextPaint.measureText(title))
+            return;
+        canvas.drawText(title, left + mEventPadding, top + mEventPadding - ascent, mEventTextPaint);
+    }
 
     /**
-     * Draw the name of the event on top of the event rectangle.
-     * @param event The event of which the title (and location) should be drawn.
+     * Draw the name of the event on top of the event rectangle. The text layout is cached in the
+     * event rectangle and reused as long as the size of the rectangle does not change.
+     * @param eventRect The event of which the title (and location) should be drawn.
      * @param rect The rectangle on which the text is to be drawn.
      * @param canvas The canvas to draw upon.
      * @param originalTop The original top position of the rectangle. The rectangle may have some of its portion outside of the visible area.
      * @param originalLeft The original left position of the rectangle. The rectangle may have some of its portion outside of the visible area.
      */
-    private void drawEventTitle(WeekViewEvent event, RectF rect, Canvas canvas, float originalTop, float originalLeft) {
+    private void drawEventTitle(EventRect eventRect, RectF rect, Canvas canvas, float originalTop, float originalLeft) {
         if (rect.right - rect.left - mEventPadding * 2 < 0) return;
         if (rect.bottom - rect.top - mEventPadding * 2 < 0) return;
 
+        int availableHeight = (int) (rect.bottom - originalTop - mEventPadding * 2);
+        int availableWidth = (int) (rect.right - originalLeft - mEventPadding * 2);
+
+        // Not even a single line fits, there is no need to lay out the text.
+        if (availableHeight < mEventTextLineHeight)
+            return;
+
+        if (eventRect.textLayoutGeneration != mTextLayoutGeneration ||
+                eventRect.textLayoutWidth != availableWidth ||
+                eventRect.textLayoutHeight != availableHeight) {
+            eventRect.textLayout = createEventTitleLayout(eventRect.event, availableWidth, availableHeight);
+            eventRect.textLayoutWidth = availableWidth;
+            eventRect.textLayoutHeight = availableHeight;
+            eventRect.textLayoutGeneration = mTextLayoutGeneration;
+        }
+
+        if (eventRect.textLayout != null) {
+            // Draw text.
+            canvas.save();
+            canvas.translate(originalLeft + mEventPadding, originalTop + mEventPadding);
+            eventRect.textLayout.draw(canvas);
+            canvas.restore();
+        }
+    }
+
+    /**
+     * Create the layout of the name and the location of an event.
+     * @param event The event of which the title (and location) should be laid out.
+     * @param availableWidth The width available for the text.
+     * @param availableHeight The height available for the text.
+     * @return The layout of the text, ellipsized to fit into the available space. Null if not even a
+     * single line fits.
+     */
+    private StaticLayout createEventTitleLayout(WeekViewEvent event, int availableWidth, int availableHeight) {
         // Prepare the name of the event.
         SpannableStringBuilder bob = new SpannableStringBuilder();
         if (event.getName() != null) {
@@ -887,317 +1436,448 @@ public class WeekView extends View {
             bob.append(event.getLocation());
         }
 
-        int availableHeight = (int) (rect.bottom - originalTop - mEventPadding * 2);
-        int availableWidth = (int) (rect.right - originalLeft - mEventPadding * 2);
-
         // Get text dimensions.
         StaticLayout textLayout = new StaticLayout(bob, mEventTextPaint, availableWidth, Layout.Alignment.ALIGN_NORMAL, 1.0f, 0.0f, false);
 
         int lineHeight = textLayout.getHeight() / textLayout.getLineCount();
+        if (mEventTextLineHeight == 0 || lineHeight < mEventTextLineHeight)
+            mEventTextLineHeight = lineHeight;
 
-        if (availableHeight >= lineHeight) {
-            // Calculate available number of line counts.
-            int availableLineCount = availableHeight / lineHeight;
-            do {
-                // Ellipsize text to fit into event rect.
-                textLayout = new StaticLayout(TextUtils.ellipsize(bob, mEventTextPaint, availableLineCount * availableWidth, TextUtils.TruncateAt.END), mEventTextPaint, (int) (rect.right - originalLeft - mEventPadding * 2), Layout.Alignment.ALIGN_NORMAL, 1.0f, 0.0f, false);
+        if (availableHeight < lineHeight)
+            return null;
 
-                // Reduce line count.
-                availableLineCount--;
+        // Calculate available number of line counts.
+        int availableLineCount = availableHeight / lineHeight;
+        do {
+            // Ellipsize text to fit into event rect.
+            textLayout = new StaticLayout(TextUtils.ellipsize(bob, mEventTextPaint, availableLineCount * availableWidth, TextUtils.TruncateAt.END), mEventTextPaint, availableWidth, Layout.Alignment.ALIGN_NORMAL, 1.0f, 0.0f, false);
 
-                // Repeat until text is short enough.
-            } while (textLayout.getHeight() > availableHeight);
+            // Reduce line count.
+            availableLineCount--;
 
-            // Draw text.
-            canvas.save();
-            canvas.translate(originalLeft + mEventPadding, originalTop + mEventPadding);
-            textLayout.draw(canvas);
-            canvas.restore();
-        }
+            // Repeat until text is short enough.
+        } while (textLayout.getHeight() > availableHeight);
+
+        return textLayout;
+    }
+
+    /**
+     * Drop the cached text layouts of all events and the titles of event groups. They are created
+     * again when the events are drawn.
+     */
+    private void invalidateEventTitleLayouts() {
+        mTextLayoutGeneration++;
+        mEventTextLineHeight = 0;
+        mEventGroupTitles.clear();
     }
 
 
     /**
-     * A class to hold reference to the events and their visual representation. An EventRect is
-     * actually the rectangle that is drawn on the calendar for a given event. There may be more
-     * than one rectangle for a single event (an event that expands more than one day). In that
-     * case two instances of the EventRect will be used for a single event. The given event will be
-     * stored in "originalEvent". But the event that corresponds to rectangle the rectangle
-     * instance will be stored in "event".
+     * An event as it is laid out on the week view, along with the cached layout of its title.
+     * There may be more than one rectangle for a single event (an event that expands more than one
+     * day). In that case two instances of the EventRect will be used for a single event. The given
+     * event will be stored in "originalEvent". But the event that corresponds to rectangle the
+     * rectangle instance will be stored in "event".
      */
-    private class EventRect {
-        public WeekViewEvent event;
-        public WeekViewEvent originalEvent;
-        public RectF rectF;
-        public float left;
-        public float width;
-        public float top;
-        public float bottom;
+    private class EventRect extends WeekViewLayout.Entry {
+        public StaticLayout textLayout;
+        public int textLayoutWidth;
+        public int textLayoutHeight;
+        public int textLayoutGeneration = -1;
 
         /**
-         * Create a new instance of event rect. An EventRect is actually the rectangle that is drawn
-         * on the calendar for a given event. There may be more than one rectangle for a single
-         * event (an event that expands more than one day). In that case two instances of the
-         * EventRect will be used for a single event. The given event will be stored in
-         * "originalEvent". But the event that corresponds to rectangle the rectangle instance will
-         * be stored in "event".
+         * Create a new instance of event rect.
          * @param event Represents the event which this instance of rectangle represents.
          * @param originalEvent The original event that was passed by the user.
-         * @param rectF The rectangle.
          */
-        public EventRect(WeekViewEvent event, WeekViewEvent originalEvent, RectF rectF) {
-            this.event = event;
-            this.rectF = rectF;
-            this.originalEvent = originalEvent;
+        public EventRect(WeekViewEvent event, WeekViewEvent originalEvent) {
+            super(event, originalEvent);
         }
     }
 
 
     /**
      * Gets more events of one/more month(s) if necessary. This method is called when the user is
-     * scrolling the week view. The week view stores the events of three months: the visible month,
-     * the previous month, the next month.
+     * scrolling the week view. The week view shows the events of three months: the visible month,
+     * the previous month, the next month. Months that have been loaded before are taken from the
+     * period cache.
      * @param day The day where the user is currently is.
      */
     private void getMoreEvents(Calendar day) {
 
         // Get more events if the month is changed.
-        if (mEventRects == null)
-            mEventRects = new ArrayList<EventRect>();
+        mEventsLoaded = true;
         if (mWeekViewLoader == null && !isInEditMode())
             throw new IllegalStateException("You must provide a MonthChangeListener");
 
-        // If a refresh was requested then reset some variables.
-        if (mRefreshEvents) {
-            mEventRects.clear();
-            mPreviousPeriodEvents = null;
-            mCurrentPeriodEvents = null;
-            mNextPeriodEvents = null;
-            mFetchedPeriod = -1;
-        }
+        // If a refresh was requested then cancel the pending loads. The events that are shown
+        // stay until the reloaded events replace them.
+        if (mRefreshEvents && mAsyncLoadingEnabled)
+            getAsyncEventLoader().cancelAll();
 
         if (mWeekViewLoader != null){
             int periodToFetch = (int) mWeekViewLoader.toWeekViewPeriodIndex(day);
             if (!isInEditMode() && (mFetchedPeriod < 0 || mFetchedPeriod != periodToFetch || mRefreshEvents)) {
-                List<? extends WeekViewEvent> previousPeriodEvents = null;
-                List<? extends WeekViewEvent> currentPeriodEvents = null;
-                List<? extends WeekViewEvent> nextPeriodEvents = null;
-
-                if (mPreviousPeriodEvents != null && mCurrentPeriodEvents != null && mNextPeriodEvents != null){
-                    if (periodToFetch == mFetchedPeriod-1){
-                        currentPeriodEvents = mPreviousPeriodEvents;
-                        nextPeriodEvents = mCurrentPeriodEvents;
-                    }
-                    else if (periodToFetch == mFetchedPeriod){
-                        previousPeriodEvents = mPreviousPeriodEvents;
-                        currentPeriodEvents = mCurrentPeriodEvents;
-                        nextPeriodEvents = mNextPeriodEvents;
-                    }
-                    else if (periodToFetch == mFetchedPeriod+1){
-                        previousPeriodEvents = mCurrentPeriodEvents;
-                        currentPeriodEvents = mNextPeriodEvents;
-                    }
-                }
-                if (currentPeriodEvents == null)
-                    currentPeriodEvents = mWeekViewLoader.onLoad(periodToFetch);
-                if (previousPeriodEvents == null)
-                    previousPeriodEvents = mWeekViewLoader.onLoad(periodToFetch-1);
-                if (nextPeriodEvents == null)
-                    nextPeriodEvents = mWeekViewLoader.onLoad(periodToFetch+1);
-
-
-                // Clear events.
-                mEventRects.clear();
-                sortAndCacheEvents(previousPeriodEvents);
-                sortAndCacheEvents(currentPeriodEvents);
-                sortAndCacheEvents(nextPeriodEvents);
-                calculateHeaderHeight();
-
-                mPreviousPeriodEvents = previousPeriodEvents;
-                mCurrentPeriodEvents = currentPeriodEvents;
-                mNextPeriodEvents = nextPeriodEvents;
+                // If the same periods are reloaded, only the events that have changed have to be
+                // laid out again.
+                boolean isLayoutCurrent = mFetchedPeriod == periodToFetch && !isLayoutPending();
+
+                // Outdated events are only kept to be compared with or to be shown until their
+                // replacement arrives.
+                if (mRefreshEvents)
+                    mPeriodCache.retain(periodToFetch-1, periodToFetch+1);
+
+                EventDiff diff = new EventDiff();
+                fetchPeriod(periodToFetch, diff);
+                fetchPeriod(periodToFetch-1, diff);
+                fetchPeriod(periodToFetch+1, diff);
                 mFetchedPeriod = periodToFetch;
+                mPeriodCache.trim(periodToFetch-1, periodToFetch+1);
+
+                // Periods that scrolled out of reach are not needed anymore, unless a fling is
+                // going to stop at them.
+                if (mAsyncLoadingEnabled)
+                    getAsyncEventLoader().cancelOutside(periodToFetch-1, periodToFetch+1, mPrefetchFirstPeriod, mPrefetchLastPeriod);
+
+                if (isLayoutCurrent) {
+                    updateLayout(diff.getRemovedEvents(), diff.getAddedEvents());
+                    return;
+                }
             }
         }
 
-        // Prepare to calculate positions of each events.
-        List<EventRect> tempEvents = mEventRects;
-        mEventRects = new ArrayList<EventRect>();
+        rebuildEventRects();
+    }
+
+    /**
+     * Make sure that the events of a period are in the period cache. The events are loaded if the
+     * period is not cached yet or if a refresh was requested.
+     * @param periodIndex The period to fetch.
+     * @param diff The diff to which the changes of reloaded events are added.
+     */
+    private void fetchPeriod(int periodIndex, EventDiff diff) {
+        List<? extends WeekViewEvent> events = mRefreshEvents ? mPeriodCache.peek(periodIndex) : mPeriodCache.get(periodIndex);
+        if (events == null || mRefreshEvents) {
+            List<? extends WeekViewEvent> loadedEvents = loadPeriod(periodIndex);
+            if (loadedEvents != null)
+                mPeriodCache.put(periodIndex, diff.merge(events, loadedEvents));
+        }
+    }
+
+    /**
+     * Start loading the periods that come into view where the current fling stops, so that their
+     * events have arrived when the fling ends. The periods that the fling only passes through are
+     * not loaded. Nothing is prefetched if the events are loaded synchronously, because loading
+     * ahead would only move the stall to the start of the fling.
+     */
+    private void prefetchFlingTarget() {
+        mPrefetchFirstPeriod = 0;
+        mPrefetchLastPeriod = -1;
+        if (!mAsyncLoadingEnabled || mWeekViewLoader == null || mFetchedPeriod < 0 || mRefreshEvents || mWidthPerDay <= 0 || isInEditMode())
+            return;
+
+        // The fling snaps to the nearest day when it stops.
+        int firstVisibleDayOffset = (int) -Math.round(mScroller.getFinalX() / (double) (mWidthPerDay + mColumnGap));
+        Calendar day = today();
+        day.add(Calendar.DATE, firstVisibleDayOffset);
+        int periodIndex = (int) mWeekViewLoader.toWeekViewPeriodIndex(day);
+        if (periodIndex == mFetchedPeriod)
+            return;
 
-        // Iterate through each day with events to calculate the position of the events.
-        while (tempEvents.size() > 0) {
-            ArrayList<EventRect> eventRects = new ArrayList<>(tempEvents.size());
+        // Drop what an earlier fling has prefetched, then load the target period before its
+        // neighbours, starting with the neighbour in the direction of the fling.
+        mPrefetchFirstPeriod = periodIndex - 1;
+        mPrefetchLastPeriod = periodIndex + 1;
+        getAsyncEventLoader().cancelOutside(mFetchedPeriod - 1, mFetchedPeriod + 1, mPrefetchFirstPeriod, mPrefetchLastPeriod);
+        int direction = periodIndex > mFetchedPeriod ? 1 : -1;
+        prefetchPeriod(periodIndex);
+        prefetchPeriod(periodIndex + direction);
+        prefetchPeriod(periodIndex - direction);
+    }
 
-            // Get first event for a day.
-            EventRect eventRect1 = tempEvents.remove(0);
-            eventRects.add(eventRect1);
+    /**
+     * Start loading a period in the background unless it is cached, already being loaded or the
+     * maximum number of prefetch loads is reached.
+     * @param periodIndex The period to load.
+     */
+    private void prefetchPeriod(int periodIndex) {
+        AsyncEventLoader asyncEventLoader = getAsyncEventLoader();
+        if (mPeriodCache.peek(periodIndex) != null || asyncEventLoader.isLoading(periodIndex))
+            return;
+        if (asyncEventLoader.getLoadCountOutside(mFetchedPeriod - 1, mFetchedPeriod + 1) >= mMaxPrefetchLoads)
+            return;
+        asyncEventLoader.load(mWeekViewLoader, periodIndex);
+    }
 
-            int i = 0;
-            while (i < tempEvents.size()) {
-                // Collect all other events for same day.
-                EventRect eventRect2 = tempEvents.get(i);
-                if (isSameDay(eventRect1.event.getStartTime(), eventRect2.event.getStartTime())) {
-                    tempEvents.remove(i);
-                    eventRects.add(eventRect2);
-                } else {
-                    i++;
-                }
-            }
-            computePositionOfEvents(eventRects);
+    /**
+     * Load the events of a period. If the events are loaded in the background, this method returns
+     * immediately and the loaded events are delivered to {@link #mAsyncEventLoaderCallback}.
+     * @param periodIndex The period to load.
+     * @return The events of the period or null if they are loaded in the background.
+     */
+    private List<? extends WeekViewEvent> loadPeriod(int periodIndex) {
+        if (!mAsyncLoadingEnabled) {
+            long startTime = System.nanoTime();
+            List<? extends WeekViewEvent> events = mWeekViewLoader.onLoad(periodIndex);
+            if (mMetricsListener != null)
+                mMetricsListener.onPeriodLoaded(periodIndex, events == null ? 0 : events.size(), System.nanoTime() - startTime);
+            return events == null ? Collections.<WeekViewEvent>emptyList() : events;
         }
+        getAsyncEventLoader().load(mWeekViewLoader, periodIndex);
+        return null;
     }
 
     /**
-     * Cache the event for smooth scrolling functionality.
-     * @param event The event to cache.
+     * Lay out the events of the shown periods. If background layout is enabled, the events are laid
+     * out on the layout thread and the current layout stays in use until the new one is ready.
      */
-    private void cacheEvent(WeekViewEvent event) {
-        if(event.getStartTime().compareTo(event.getEndTime()) >= 0)
+    private void rebuildEventRects() {
+        List<List<? extends WeekViewEvent>> eventsOfPeriods = new ArrayList<List<? extends WeekViewEvent>>(3);
+        for (int periodIndex = mFetchedPeriod - 1; periodIndex <= mFetchedPeriod + 1; periodIndex++) {
+            List<? extends WeekViewEvent> events = mPeriodCache.peek(periodIndex);
+            if (events != null)
+                eventsOfPeriods.add(events);
+        }
+
+        // The events are split and copied here, so the layout thread never reads the events that
+        // the UI thread uses. A layout that is still running is not needed anymore.
+        long startTime = System.nanoTime();
+        WeekViewLayout.EventBatch batch = mLayout.prepareEvents(eventsOfPeriods);
+        if (mBackgroundLayoutBatch != null) {
+            mBackgroundLayoutBatch.cancel();
+            mBackgroundLayoutBatch = null;
+        }
+        if (mBackgroundLayoutEnabled) {
+            layoutInBackground(batch);
             return;
-        List<WeekViewEvent> splitedEvents = event.splitWeekViewEvents();
-        for(WeekViewEvent splitedEvent: splitedEvents){
-            mEventRects.add(new EventRect(splitedEvent, event, null));
         }
+        WeekViewLayout.Snapshot snapshot = mLayout.buildSnapshot(batch);
+        reportLayout(snapshot, System.nanoTime() - startTime);
+        publishLayout(mLayoutRequest.incrementAndGet(), snapshot);
+        calculateHeaderHeight();
     }
 
     /**
-     * Sort and cache events.
-     * @param events The events to be sorted and cached.
+     * Report the duration of a layout to the metrics listener, if there is one.
+     * @param snapshot The result of the layout.
+     * @param durationNanos The duration of the layout in nanoseconds.
      */
-    private void sortAndCacheEvents(List<? extends WeekViewEvent> events) {
-        sortEvents(events);
-        for (WeekViewEvent event : events) {
-            cacheEvent(event);
-        }
+    private void reportLayout(WeekViewLayout.Snapshot snapshot, long durationNanos) {
+        if (mMetricsListener != null)
+            mMetricsListener.onEventsLaidOut(snapshot.getEntries().size(), durationNanos);
     }
 
     /**
-     * Sorts the events in ascending order.
-     * @param events The events to be sorted.
+     * Lay out events on the layout thread and publish the result once it is ready. Layouts that
+     * have been requested before are dropped.
+     * @param batch The events to lay out.
      */
-    private void sortEvents(List<? extends WeekViewEvent> events) {
-        Collections.sort(events, new Comparator<WeekViewEvent>() {
+    private void layoutInBackground(final WeekViewLayout.EventBatch batch) {
+        final int request = mLayoutRequest.incrementAndGet();
+        mBackgroundLayoutBatch = batch;
+        if (mLayoutExecutor == null) {
+            // A single thread, so that the layouts are published in the order they were requested.
+            mLayoutExecutor = new ThreadPoolExecutor(1, 1, 1, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "WeekView layout");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            mLayoutExecutor.allowCoreThreadTimeOut(true);
+        }
+        mLayoutExecutor.execute(new Runnable() {
             @Override
-            public int compare(WeekViewEvent event1, WeekViewEvent event2) {
-                long start1 = event1.getStartTime().getTimeInMillis();
-                long start2 = event2.getStartTime().getTimeInMillis();
-                int comparator = start1 > start2 ? 1 : (start1 < start2 ? -1 : 0);
-                if (comparator == 0) {
-                    long end1 = event1.getEndTime().getTimeInMillis();
-                    long end2 = event2.getEndTime().getTimeInMillis();
-                    comparator = end1 > end2 ? 1 : (end1 < end2 ? -1 : 0);
+            public void run() {
+                // Newer events have arrived in the meantime.
+                if (mLayoutRequest.get() != request)
+                    return;
+
+                final WeekViewLayout.Snapshot snapshot;
+                long startTime = System.nanoTime();
+                try {
+                    snapshot = mLayout.buildSnapshot(batch);
+                } catch (final RuntimeException e) {
+                    // Fail on the UI thread just like a synchronous layout would.
+                    post(new Runnable() {
+                        @Override
+                        public void run() {
+                            throw e;
+                        }
+                    });
+                    return;
                 }
-                return comparator;
+                final long durationNanos = System.nanoTime() - startTime;
+                if (snapshot == null || !publishLayout(request, snapshot))
+                    return;
+                post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (mBackgroundLayoutBatch == batch)
+                            mBackgroundLayoutBatch = null;
+                        reportLayout(snapshot, durationNanos);
+                        invalidate();
+                    }
+                });
             }
         });
     }
 
     /**
-     * Calculates the left and right positions of each events. This comes handy specially if events
-     * are overlapping.
-     * @param eventRects The events along with their wrapper class.
+     * Make a layout the one that is drawn, unless a newer layout has been requested.
+     * @param request The number of the layout request.
+     * @param snapshot The layout.
+     * @return True if the layout has been published.
      */
-    private void computePositionOfEvents(List<EventRect> eventRects) {
-        // Make "collision groups" for all events that collide with others.
-        List<List<EventRect>> collisionGroups = new ArrayList<List<EventRect>>();
-        for (EventRect eventRect : eventRects) {
-            boolean isPlaced = false;
+    private boolean publishLayout(int request, WeekViewLayout.Snapshot snapshot) {
+        synchronized (mLayoutRequest) {
+            if (mLayoutRequest.get() != request)
+                return false;
+            mLayout.setSnapshot(snapshot);
+            mPublishedLayoutRequest = request;
+            return true;
+        }
+    }
 
-            outerLoop:
-            for (List<EventRect> collisionGroup : collisionGroups) {
-                for (EventRect groupEvent : collisionGroup) {
-                    if (isEventsCollide(groupEvent.event, eventRect.event) && groupEvent.event.isAllDay() == eventRect.event.isAllDay()) {
-                        collisionGroup.add(eventRect);
-                        isPlaced = true;
-                        break outerLoop;
-                    }
-                }
-            }
+    /**
+     * @return True if the latest requested layout has not been published yet.
+     */
+    private boolean isLayoutPending() {
+        synchronized (mLayoutRequest) {
+            return mPublishedLayoutRequest != mLayoutRequest.get();
+        }
+    }
+
+    /**
+     * Remove and add single events without loading the events again. The cached periods are
+     * changed as well, and only the days of the changed events are laid out again.
+     * @param removedEventIds The ids of the events to remove.
+     * @param addedEvents The events to add.
+     */
+    private void changeEvents(Set<Long> removedEventIds, List<WeekViewEvent> addedEvents) {
+        boolean isShownPeriodChanged = false;
+        List<Integer> changedPeriodIndices = new ArrayList<Integer>();
+        List<WeekViewEvent> removedEvents = new ArrayList<WeekViewEvent>();
+        if (!removedEventIds.isEmpty())
+            mPeriodCache.removeEvents(removedEventIds, changedPeriodIndices, removedEvents);
+        for (int i = 0; i < changedPeriodIndices.size(); i++) {
+            if (isShownPeriod(changedPeriodIndices.get(i)))
+                isShownPeriodChanged = true;
+        }
 
-            if (!isPlaced) {
-                List<EventRect> newGroup = new ArrayList<EventRect>();
-                newGroup.add(eventRect);
-                collisionGroups.add(newGroup);
+        // The events are added to the period in which they start. Periods that are not loaded yet
+        // get their events from the loader.
+        List<WeekViewEvent> shownAddedEvents = new ArrayList<WeekViewEvent>(addedEvents.size());
+        if (mWeekViewLoader != null) {
+            for (WeekViewEvent event : addedEvents) {
+                int periodIndex = (int) mWeekViewLoader.toWeekViewPeriodIndex(event.getStartTime());
+                if (mPeriodCache.addEvent(periodIndex, event) && isShownPeriod(periodIndex))
+                    shownAddedEvents.add(event);
             }
         }
+        if (!isShownPeriodChanged && shownAddedEvents.isEmpty())
+            return;
 
-        for (List<EventRect> collisionGroup : collisionGroups) {
-            expandEventsToMaxWidth(collisionGroup);
+        // A background layout that is still running does not know about the change, so it has to
+        // be done again.
+        if (isLayoutPending()) {
+            rebuildEventRects();
+            invalidate();
+            return;
         }
+        // The removed events may have been changed already if the caller updates an instance in
+        // place, so their old days are taken from the layout.
+        List<Integer> oldDays = new ArrayList<Integer>();
+        mLayout.getSnapshot().getDaysOf(removedEvents, oldDays);
+        float headerHeight = mHeaderHeight;
+        updateLayout(removedEvents, shownAddedEvents);
+        invalidateEvents(headerHeight, oldDays, shownAddedEvents);
     }
 
     /**
-     * Expands all the events to maximum possible width. The events will try to occupy maximum
-     * space available horizontally.
-     * @param collisionGroup The group of events which overlap with each other.
+     * Redraw the day columns of changed events. Everything is redrawn if the header has changed
+     * because all-day events have appeared or disappeared.
+     * @param oldHeaderHeight The height of the header before the change.
+     * @param oldDays The epoch days on which the removed events were laid out.
+     * @param addedEvents The events that have been added.
      */
-    private void expandEventsToMaxWidth(List<EventRect> collisionGroup) {
-        // Expand the events to maximum possible width.
-        List<List<EventRect>> columns = new ArrayList<List<EventRect>>();
-        columns.add(new ArrayList<EventRect>());
-        for (EventRect eventRect : collisionGroup) {
-            boolean isPlaced = false;
-            for (List<EventRect> column : columns) {
-                if (column.size() == 0) {
-                    column.add(eventRect);
-                    isPlaced = true;
-                }
-                else if (!isEventsCollide(eventRect.event, column.get(column.size()-1).event)) {
-                    column.add(eventRect);
-                    isPlaced = true;
-                    break;
-                }
-            }
-            if (!isPlaced) {
-                List<EventRect> newColumn = new ArrayList<EventRect>();
-                newColumn.add(eventRect);
-                columns.add(newColumn);
-            }
+    private void invalidateEvents(float oldHeaderHeight, List<Integer> oldDays, List<WeekViewEvent> addedEvents) {
+        if (mHeaderHeight != oldHeaderHeight || mAreDimensionsInvalid) {
+            invalidate();
+            return;
+        }
+        int todayEpochDay = getEpochDay(updateToday());
+        for (int i = 0; i < oldDays.size(); i++) {
+            int dayOffset = oldDays.get(i) - todayEpochDay;
+            invalidateDays(dayOffset, dayOffset);
         }
+        for (int i = 0; i < addedEvents.size(); i++) {
+            WeekViewEvent event = addedEvents.get(i);
+            invalidateDays(getEpochDay(event.getStartTime()) - todayEpochDay, getEpochDay(event.getEndTime()) - todayEpochDay);
+        }
+    }
 
+    /**
+     * Redraw a range of day columns if they are visible.
+     * @param firstDayOffset The number of days between today and the first day.
+     * @param lastDayOffset The number of days between today and the last day.
+     */
+    private void invalidateDays(int firstDayOffset, int lastDayOffset) {
+        float left = getDayColumnLeft(firstDayOffset);
+        float right = getDayColumnLeft(lastDayOffset) + mWidthPerDay;
+        if (right > mHeaderColumnWidth && left < getWidth())
+            invalidate((int) Math.max(left, mHeaderColumnWidth), 0, (int) Math.ceil(Math.min(right, getWidth())), getHeight());
+    }
 
-        // Calculate left and right position for all the events.
-        // Get the maxRowCount by looking in all columns.
-        int maxRowCount = 0;
-        for (List<EventRect> column : columns){
-            maxRowCount = Math.max(maxRowCount, column.size());
-        }
-        for (int i = 0; i < maxRowCount; i++) {
-            // Set the left and right values of the event.
-            float j = 0;
-            for (List<EventRect> column : columns) {
-                if (column.size() >= i+1) {
-                    EventRect eventRect = column.get(i);
-                    eventRect.width = 1f / columns.size();
-                    eventRect.left = j / columns.size();
-                    if(!eventRect.event.isAllDay()) {
-                        eventRect.top = eventRect.event.getStartTime().get(Calendar.HOUR_OF_DAY) * 60 + eventRect.event.getStartTime().get(Calendar.MINUTE);
-                        eventRect.bottom = eventRect.event.getEndTime().get(Calendar.HOUR_OF_DAY) * 60 + eventRect.event.getEndTime().get(Calendar.MINUTE);
-                    }
-                    else{
-                        eventRect.top = 0;
-                        eventRect.bottom = mAllDayEventHeight;
-                    }
-                    mEventRects.add(eventRect);
-                }
-                j++;
-            }
-        }
+    /**
+     * @param dayOffset The number of days between today and the day.
+     * @return The left position of the column of the day.
+     */
+    private float getDayColumnLeft(int dayOffset) {
+        return mCurrentOrigin.x + mHeaderColumnWidth + (mWidthPerDay + mColumnGap) * dayOffset;
+    }
+
+    /**
+     * Redraw what moves when the days scroll horizontally: everything but the time column.
+     */
+    private void postInvalidateDaysOnAnimation() {
+        ViewCompat.postInvalidateOnAnimation(this, (int) Math.ceil(mHeaderColumnWidth), 0, getWidth(), getHeight());
+    }
+
+    /**
+     * Redraw what moves when the hours scroll vertically or are zoomed: everything but the header
+     * row.
+     */
+    private void postInvalidateHoursOnAnimation() {
+        ViewCompat.postInvalidateOnAnimation(this, 0, (int) (mHeaderHeight + mHeaderRowPadding * 2), getWidth(), getHeight());
     }
 
+    /**
+     * Lay out only the days of changed events again. The layout must be up to date with the
+     * events before they changed.
+     * @param removedEvents The events that have been removed from the shown periods.
+     * @param addedEvents The events that have been added to the shown periods.
+     * @return False if nothing has changed.
+     */
+    private boolean updateLayout(List<WeekViewEvent> removedEvents, List<WeekViewEvent> addedEvents) {
+        if (removedEvents.isEmpty() && addedEvents.isEmpty())
+            return false;
+        long startTime = System.nanoTime();
+        WeekViewLayout.Snapshot snapshot = mLayout.updateSnapshot(mLayout.getSnapshot(), removedEvents, addedEvents);
+        reportLayout(snapshot, System.nanoTime() - startTime);
+        publishLayout(mLayoutRequest.incrementAndGet(), snapshot);
+        calculateHeaderHeight();
+        return true;
+    }
 
     /**
-     * Checks if two events overlap.
-     * @param event1 The first event.
-     * @param event2 The second event.
-     * @return true if the events overlap.
+     * @param periodIndex The period.
+     * @return True if the events of the period are shown, i.e. it is the fetched period or one of
+     * its neighbours.
      */
-    private boolean isEventsCollide(WeekViewEvent event1, WeekViewEvent event2) {
-        long start1 = event1.getStartTime().getTimeInMillis();
-        long end1 = event1.getEndTime().getTimeInMillis();
-        long start2 = event2.getStartTime().getTimeInMillis();
-        long end2 = event2.getEndTime().getTimeInMillis();
-        return !((start1 >= end2) || (end1 <= start2));
+    private boolean isShownPeriod(int periodIndex) {
+        return mFetchedPeriod >= 0 && Math.abs(periodIndex - mFetchedPeriod) <= 1;
     }
 
 
@@ -1211,10 +1891,25 @@ public class WeekView extends View {
         return !(time1 == null || time2 == null) && time1.getTimeInMillis() >= time2.getTimeInMillis();
     }
 
-    @Override
-    public void invalidate() {
-        super.invalidate();
+    /**
+     * Redraw everything, because a style has changed. The day tiles are drawn again and the hour
+     * separators and time column are recorded again, see {@link #updateGridPictures()}. Changed
+     * events only invalidate the tiles of their days, because the tiles of the other days keep
+     * their entries.
+     */
+    private void invalidateStyle() {
+        mTileGeneration++;
+        mGridGeneration++;
+        invalidate();
+    }
+
+    /**
+     * Redraw everything and calculate the dimensions again, because a property that they depend on
+     * has changed. Scrolling to a date or hour waits until the new dimensions are known.
+     */
+    private void invalidateDimensions() {
         mAreDimensionsInvalid = true;
+        invalidateStyle();
     }
 
     /////////////////////////////////////////////////////////////////
@@ -1239,6 +1934,9 @@ public class WeekView extends View {
 
     public void setMonthChangeListener(MonthLoader.MonthChangeListener monthChangeListener) {
         this.mWeekViewLoader = new MonthLoader(monthChangeListener);
+
+        // Cached periods of another loader can't be reused.
+        notifyDatasetChanged();
     }
 
     /**
@@ -1259,6 +1957,232 @@ public class WeekView extends View {
      */
     public void setWeekViewLoader(WeekViewLoader loader){
         this.mWeekViewLoader = loader;
+        if (loader instanceof DayRangeLoader)
+            ((DayRangeLoader) loader).setFirstDayOfWeek(mFirstDayOfWeek);
+        if (loader instanceof AdaptiveDayRangeLoader)
+            ((AdaptiveDayRangeLoader) loader).setVisibleDayCount(mNumberOfVisibleDays);
+
+        // Cached periods of another loader can't be reused.
+        notifyDatasetChanged();
+    }
+
+    /**
+     * Get the engine which calculates the horizontal position of overlapping events.
+     * @return The event layout engine.
+     */
+    public EventLayoutEngine getEventLayoutEngine() {
+        return mLayout.getEventLayoutEngine();
+    }
+
+    /**
+     * Set the engine which calculates the horizontal position of overlapping events. The events
+     * are laid out again with the new engine.
+     * @param eventLayoutEngine The event layout engine.
+     */
+    public void setEventLayoutEngine(EventLayoutEngine eventLayoutEngine) {
+        mLayout.setEventLayoutEngine(eventLayoutEngine);
+        if (mEventsLoaded)
+            rebuildEventRects();
+        invalidate();
+    }
+
+    /**
+     * Get whether the events are laid out on a background thread.
+     * @return True if the events are laid out on a background thread.
+     */
+    public boolean isBackgroundLayoutEnabled() {
+        return mBackgroundLayoutEnabled;
+    }
+
+    /**
+     * Set whether the events should be laid out on a background thread. If enabled, splitting,
+     * sorting and positioning the events happens on a background thread whenever the events
+     * change, and the week view keeps drawing the previous layout until the new one is swapped
+     * in. The {@link EventLayoutEngine} must then be safe to be called from a background thread,
+     * and the events must not be changed while they are laid out; change them and call
+     * {@link #notifyDatasetChanged()} instead.
+     * @param enabled True if the events should be laid out on a background thread.
+     */
+    public void setBackgroundLayoutEnabled(boolean enabled) {
+        if (mBackgroundLayoutEnabled == enabled)
+            return;
+        mBackgroundLayoutEnabled = enabled;
+
+        // Replace a pending background layout right away.
+        if (!enabled && mEventsLoaded) {
+            rebuildEventRects();
+            invalidate();
+        }
+    }
+
+    private AsyncEventLoader getAsyncEventLoader() {
+        if (mAsyncEventLoader == null)
+            mAsyncEventLoader = new AsyncEventLoader(mAsyncEventLoaderCallback);
+        return mAsyncEventLoader;
+    }
+
+    /**
+     * Get whether the events are loaded on a background thread.
+     * @return True if the events are loaded on a background thread.
+     */
+    public boolean isAsyncLoadingEnabled() {
+        return mAsyncLoadingEnabled;
+    }
+
+    /**
+     * Set whether the events should be loaded on a background thread. If enabled,
+     * {@link WeekViewLoader#onLoad(int)} is called on a background executor and the week view keeps
+     * drawing the events it already has until the loaded events arrive. Loads of periods that the
+     * user has scrolled away from are cancelled. The loader must be safe to be called from a
+     * background thread.
+     * @param enabled True if the events should be loaded on a background thread.
+     */
+    public void setAsyncLoadingEnabled(boolean enabled) {
+        if (mAsyncLoadingEnabled == enabled)
+            return;
+        mAsyncLoadingEnabled = enabled;
+        if (!enabled && mAsyncEventLoader != null) {
+            boolean hadPendingLoads = mAsyncEventLoader.cancelAll();
+            mAsyncEventLoader.shutdown();
+            if (hadPendingLoads)
+                notifyDatasetChanged();
+        }
+    }
+
+    /**
+     * Get the memory limit of the day tiles.
+     * @return The maximum number of bytes of the day tiles or 0 if they are disabled.
+     */
+    public int getDayTileCacheSize() {
+        return mDayTileCache == null ? 0 : mDayTileCache.getMaxBytes();
+    }
+
+    /**
+     * Set the memory limit of the day tiles. If enabled, each fully visible day column is drawn
+     * once into a bitmap, which is copied to the screen as long as the day only moves
+     * horizontally. The tile of a day is drawn again when the events of the day change, and all
+     * tiles are drawn again after vertical scrolling, zooming and style changes. While the view
+     * scrolls vertically or zooms, the days are drawn directly. When the limit is
+     * reached, the bitmaps of the least recently used days are reused. Tiles mostly help with
+     * software rendering and slow event drawing; with hardware acceleration direct drawing is often
+     * just as fast.
+     * @param maxBytes The maximum number of bytes of the day tiles or 0 to disable them.
+     */
+    public void setDayTileCacheSize(int maxBytes) {
+        if (maxBytes < 0)
+            throw new IllegalArgumentException("maxBytes must not be negative");
+        if (maxBytes == getDayTileCacheSize())
+            return;
+        mDayTileCache = maxBytes == 0 ? null : new DayTileCache(maxBytes);
+        if (mTileCanvas == null && maxBytes > 0)
+            mTileCanvas = new Canvas();
+        invalidate();
+    }
+
+    /**
+     * Get the maximum number of periods that are loaded ahead of a fling at a time.
+     * @return The maximum number of prefetch loads.
+     */
+    public int getMaxPrefetchLoads() {
+        return mMaxPrefetchLoads;
+    }
+
+    /**
+     * Set the maximum number of periods that are loaded ahead of a fling at a time. When the user
+     * flings horizontally and async loading is enabled, the periods around the day where the fling
+     * is going to stop are loaded while the fling is still running. The loads of the shown periods
+     * do not count towards this limit.
+     * @param maxPrefetchLoads The maximum number of prefetch loads or 0 to disable prefetching.
+     */
+    public void setMaxPrefetchLoads(int maxPrefetchLoads) {
+        if (maxPrefetchLoads < 0)
+            throw new IllegalArgumentException("maxPrefetchLoads must not be negative");
+        mMaxPrefetchLoads = maxPrefetchLoads;
+    }
+
+    /**
+     * Get the executor on which the events are loaded when async loading is enabled.
+     * @return The executor or null if the default background thread is used.
+     */
+    public @Nullable ExecutorService getAsyncLoadingExecutor() {
+        return mAsyncEventLoader == null ? null : mAsyncEventLoader.getExecutor();
+    }
+
+    /**
+     * Set the executor on which the events are loaded when async loading is enabled. By default a
+     * single background thread is used. The week view never shuts down an executor set here.
+     * @param executor The executor or null to use the default background thread.
+     */
+    public void setAsyncLoadingExecutor(@Nullable ExecutorService executor) {
+        AsyncEventLoader asyncEventLoader = getAsyncEventLoader();
+        boolean hadPendingLoads = asyncEventLoader.cancelAll();
+        asyncEventLoader.setExecutor(executor);
+        if (hadPendingLoads)
+            notifyDatasetChanged();
+    }
+
+    /**
+     * Get the maximum number of periods whose events are kept in memory.
+     * @return The maximum number of cached periods.
+     */
+    public int getPeriodCacheSize() {
+        return mPeriodCache.getMaxSize();
+    }
+
+    /**
+     * Set the maximum number of periods whose events are kept in memory. Periods that are scrolled
+     * back to are taken from the cache instead of being loaded again. The least recently used
+     * periods are evicted first.
+     * @param periodCacheSize The maximum number of cached periods. Must be at least 3, because the
+     *                        visible period and its neighbours are always kept.
+     */
+    public void setPeriodCacheSize(int periodCacheSize) {
+        if (periodCacheSize < 3)
+            throw new IllegalArgumentException("periodCacheSize must be at least 3");
+        mPeriodCache.setMaxSize(periodCacheSize);
+        mPeriodCache.trim(mFetchedPeriod - 1, mFetchedPeriod + 1);
+    }
+
+    /**
+     * Get the maximum number of events that are kept in the period cache.
+     * @return The maximum number of cached events.
+     */
+    public int getMaxCachedEvents() {
+        return mPeriodCache.getMaxEventCount();
+    }
+
+    /**
+     * Set the maximum number of events that are kept in the period cache. This bounds the memory
+     * used by the cache. The visible period and its neighbours are kept even if they have more
+     * events. By default the number of events is not limited.
+     * @param maxCachedEvents The maximum number of cached events.
+     */
+    public void setMaxCachedEvents(int maxCachedEvents) {
+        mPeriodCache.setMaxEventCount(maxCachedEvents);
+        mPeriodCache.trim(mFetchedPeriod - 1, mFetchedPeriod + 1);
+    }
+
+    /**
+     * Get the number of times a period was needed and found in the period cache.
+     * @return The number of cache hits.
+     */
+    public int getPeriodCacheHitCount() {
+        return mPeriodCache.getHitCount();
+    }
+
+    /**
+     * Get the number of times a period was needed and had to be loaded.
+     * @return The number of cache misses.
+     */
+    public int getPeriodCacheMissCount() {
+        return mPeriodCache.getMissCount();
+    }
+
+    /**
+     * Reset the period cache hit and miss counters.
+     */
+    public void resetPeriodCacheStatistics() {
+        mPeriodCache.resetStatistics();
     }
 
     public EventLongPressListener getEventLongPressListener() {
@@ -1293,6 +2217,21 @@ public class WeekView extends View {
         return mScrollListener;
     }
 
+    /**
+     * Set a listener that is told how long drawing, loading and laying out events take. Measuring
+     * is skipped entirely while no listener is set. {@link WeekViewMetrics} sums the timings up in
+     * histograms.
+     * @param metricsListener The listener or null to stop measuring.
+     */
+    public void setMetricsListener(@Nullable MetricsListener metricsListener) {
+        mMetricsListener = metricsListener;
+        mFrameMetrics = metricsListener == null ? null : new FrameMetrics();
+    }
+
+    public @Nullable MetricsListener getMetricsListener() {
+        return mMetricsListener;
+    }
+
     /**
      * Get the interpreter which provides the text to show in the header column and the header row.
      * @return The date, time interpreter.
@@ -1334,13 +2273,35 @@ public class WeekView extends View {
 
     /**
      * Set the interpreter which provides the text to show in the header column and the header row.
+     * The labels are cached, so the interpreter is only asked once for each date and hour.
      * @param dateTimeInterpreter The date, time interpreter.
      */
     public void setDateTimeInterpreter(DateTimeInterpreter dateTimeInterpreter){
         this.mDateTimeInterpreter = dateTimeInterpreter;
+        invalidateDateTimeLabels();
+    }
+
+    /**
+     * Get the interpreter that is used for drawing. It remembers the labels of the interpreter
+     * returned by {@link #getDateTimeInterpreter()}.
+     * @return The caching date, time interpreter.
+     */
+    private DateTimeInterpreter getCachingDateTimeInterpreter() {
+        DateTimeInterpreter dateTimeInterpreter = getDateTimeInterpreter();
+        if (mCachingDateTimeInterpreter.getDelegate() != dateTimeInterpreter)
+            mCachingDateTimeInterpreter.setDelegate(dateTimeInterpreter);
+        return mCachingDateTimeInterpreter;
+    }
 
-        // Refresh time column width.
+    /**
+     * Format the date and time labels and the titles of event groups again, for example because the
+     * 24-hour format or the locale has changed.
+     */
+    private void invalidateDateTimeLabels() {
+        mCachingDateTimeInterpreter.clear();
+        mEventGroupTitles.clear();
         initTextTimeWidth();
+        invalidateDimensions();
     }
 
 
@@ -1360,7 +2321,12 @@ public class WeekView extends View {
         this.mNumberOfVisibleDays = numberOfVisibleDays;
         mCurrentOrigin.x = 0;
         mCurrentOrigin.y = 0;
-        invalidate();
+
+        // Only the period of the first visible day and its neighbours are loaded, so the periods
+        // of an adaptive loader must not be shorter than the visible days.
+        if (mWeekViewLoader instanceof AdaptiveDayRangeLoader && ((AdaptiveDayRangeLoader) mWeekViewLoader).setVisibleDayCount(numberOfVisibleDays))
+            notifyDatasetChanged();
+        invalidateDimensions();
     }
 
     public int getHourHeight() {
@@ -1369,7 +2335,7 @@ public class WeekView extends View {
 
     public void setHourHeight(int hourHeight) {
         mNewHourHeight = hourHeight;
-        invalidate();
+        invalidateDimensions();
     }
 
     public int getColumnGap() {
@@ -1378,7 +2344,7 @@ public class WeekView extends View {
 
     public void setColumnGap(int columnGap) {
         mColumnGap = columnGap;
-        invalidate();
+        invalidateDimensions();
     }
 
     public int getFirstDayOfWeek() {
@@ -1399,6 +2365,12 @@ public class WeekView extends View {
      */
     public void setFirstDayOfWeek(int firstDayOfWeek) {
         mFirstDayOfWeek = firstDayOfWeek;
+
+        // The periods of a day range loader start on the first day of the week, so they change.
+        if (mWeekViewLoader instanceof DayRangeLoader && ((DayRangeLoader) mWeekViewLoader).getFirstDayOfWeek() != firstDayOfWeek) {
+            ((DayRangeLoader) mWeekViewLoader).setFirstDayOfWeek(firstDayOfWeek);
+            notifyDatasetChanged();
+        }
         invalidate();
     }
 
@@ -1419,7 +2391,7 @@ public class WeekView extends View {
         mTodayHeaderTextPaint.setTextSize(mTextSize);
         mHeaderTextPaint.setTextSize(mTextSize);
         mTimeTextPaint.setTextSize(mTextSize);
-        invalidate();
+        invalidateDimensions();
     }
 
     public int getHeaderColumnPadding() {
@@ -1428,7 +2400,7 @@ public class WeekView extends View {
 
     public void setHeaderColumnPadding(int headerColumnPadding) {
         mHeaderColumnPadding = headerColumnPadding;
-        invalidate();
+        invalidateDimensions();
     }
 
     public int getHeaderColumnTextColor() {
@@ -1439,7 +2411,7 @@ public class WeekView extends View {
         mHeaderColumnTextColor = headerColumnTextColor;
         mHeaderTextPaint.setColor(mHeaderColumnTextColor);
         mTimeTextPaint.setColor(mHeaderColumnTextColor);
-        invalidate();
+        invalidateStyle();
     }
 
     public int getHeaderRowPadding() {
@@ -1448,7 +2420,7 @@ public class WeekView extends View {
 
     public void setHeaderRowPadding(int headerRowPadding) {
         mHeaderRowPadding = headerRowPadding;
-        invalidate();
+        invalidateDimensions();
     }
 
     public int getHeaderRowBackgroundColor() {
@@ -1458,7 +2430,7 @@ public class WeekView extends View {
     public void setHeaderRowBackgroundColor(int headerRowBackgroundColor) {
         mHeaderRowBackgroundColor = headerRowBackgroundColor;
         mHeaderBackgroundPaint.setColor(mHeaderRowBackgroundColor);
-        invalidate();
+        invalidateStyle();
     }
 
     public int getDayBackgroundColor() {
@@ -1468,7 +2440,7 @@ public class WeekView extends View {
     public void setDayBackgroundColor(int dayBackgroundColor) {
         mDayBackgroundColor = dayBackgroundColor;
         mDayBackgroundPaint.setColor(mDayBackgroundColor);
-        invalidate();
+        invalidateStyle();
     }
 
     public int getHourSeparatorColor() {
@@ -1478,7 +2450,7 @@ public class WeekView extends View {
     public void setHourSeparatorColor(int hourSeparatorColor) {
         mHourSeparatorColor = hourSeparatorColor;
         mHourSeparatorPaint.setColor(mHourSeparatorColor);
-        invalidate();
+        invalidateStyle();
     }
 
     public int getTodayBackgroundColor() {
@@ -1488,7 +2460,7 @@ public class WeekView extends View {
     public void setTodayBackgroundColor(int todayBackgroundColor) {
         mTodayBackgroundColor = todayBackgroundColor;
         mTodayBackgroundPaint.setColor(mTodayBackgroundColor);
-        invalidate();
+        invalidateStyle();
     }
 
     public int getHourSeparatorHeight() {
@@ -1498,7 +2470,7 @@ public class WeekView extends View {
     public void setHourSeparatorHeight(int hourSeparatorHeight) {
         mHourSeparatorHeight = hourSeparatorHeight;
         mHourSeparatorPaint.setStrokeWidth(mHourSeparatorHeight);
-        invalidate();
+        invalidateStyle();
     }
 
     public int getTodayHeaderTextColor() {
@@ -1508,7 +2480,7 @@ public class WeekView extends View {
     public void setTodayHeaderTextColor(int todayHeaderTextColor) {
         mTodayHeaderTextColor = todayHeaderTextColor;
         mTodayHeaderTextPaint.setColor(mTodayHeaderTextColor);
-        invalidate();
+        invalidateStyle();
     }
 
     public int getEventTextSize() {
@@ -1518,7 +2490,8 @@ public class WeekView extends View {
     public void setEventTextSize(int eventTextSize) {
         mEventTextSize = eventTextSize;
         mEventTextPaint.setTextSize(mEventTextSize);
-        invalidate();
+        invalidateEventTitleLayouts();
+        invalidateStyle();
     }
 
     public int getEventTextColor() {
@@ -1528,7 +2501,7 @@ public class WeekView extends View {
     public void setEventTextColor(int eventTextColor) {
         mEventTextColor = eventTextColor;
         mEventTextPaint.setColor(mEventTextColor);
-        invalidate();
+        invalidateStyle();
     }
 
     public int getEventPadding() {
@@ -1537,7 +2510,7 @@ public class WeekView extends View {
 
     public void setEventPadding(int eventPadding) {
         mEventPadding = eventPadding;
-        invalidate();
+        invalidateStyle();
     }
 
     public int getHeaderColumnBackgroundColor() {
@@ -1547,7 +2520,7 @@ public class WeekView extends View {
     public void setHeaderColumnBackgroundColor(int headerColumnBackgroundColor) {
         mHeaderColumnBackgroundColor = headerColumnBackgroundColor;
         mHeaderColumnBackgroundPaint.setColor(mHeaderColumnBackgroundColor);
-        invalidate();
+        invalidateStyle();
     }
 
     public int getDefaultEventColor() {
@@ -1556,7 +2529,7 @@ public class WeekView extends View {
 
     public void setDefaultEventColor(int defaultEventColor) {
         mDefaultEventColor = defaultEventColor;
-        invalidate();
+        invalidateStyle();
     }
 
     /**
@@ -1584,6 +2557,7 @@ public class WeekView extends View {
             throw new IllegalArgumentException("length parameter must be either LENGTH_LONG or LENGTH_SHORT");
         }
         this.mDayNameLength = length;
+        invalidateDateTimeLabels();
     }
 
     public int getOverlappingEventGap() {
@@ -1596,7 +2570,7 @@ public class WeekView extends View {
      */
     public void setOverlappingEventGap(int overlappingEventGap) {
         this.mOverlappingEventGap = overlappingEventGap;
-        invalidate();
+        invalidateStyle();
     }
 
     public int getEventCornerRadius() {
@@ -1623,7 +2597,7 @@ public class WeekView extends View {
      */
     public void setEventMarginVertical(int eventMarginVertical) {
         this.mEventMarginVertical = eventMarginVertical;
-        invalidate();
+        invalidateStyle();
     }
 
     /**
@@ -1676,7 +2650,7 @@ public class WeekView extends View {
      */
     public void setShowDistinctWeekendColor(boolean showDistinctWeekendColor) {
         this.mShowDistinctWeekendColor = showDistinctWeekendColor;
-        invalidate();
+        invalidateStyle();
     }
 
     /**
@@ -1698,7 +2672,8 @@ public class WeekView extends View {
      */
     public void setShowDistinctPastFutureColor(boolean showDistinctPastFutureColor) {
         this.mShowDistinctPastFutureColor = showDistinctPastFutureColor;
-        invalidate();
+        scheduleNowUpdate();
+        invalidateStyle();
     }
 
     /**
@@ -1717,7 +2692,8 @@ public class WeekView extends View {
      */
     public void setShowNowLine(boolean showNowLine) {
         this.mShowNowLine = showNowLine;
-        invalidate();
+        scheduleNowUpdate();
+        invalidateStyle();
     }
 
     /**
@@ -1734,7 +2710,7 @@ public class WeekView extends View {
      */
     public void setNowLineColor(int nowLineColor) {
         this.mNowLineColor = nowLineColor;
-        invalidate();
+        invalidateStyle();
     }
 
     /**
@@ -1751,7 +2727,7 @@ public class WeekView extends View {
      */
     public void setNowLineThickness(int nowLineThickness) {
         this.mNowLineThickness = nowLineThickness;
-        invalidate();
+        invalidateStyle();
     }
 
     /**
@@ -1816,6 +2792,48 @@ public class WeekView extends View {
         mScrollDuration = scrollDuration;
     }
 
+    public int getEventDetailMinHeight() {
+        return mEventDetailMinHeight;
+    }
+
+    /**
+     * Set the height below which events are drawn as plain rectangles without their titles. This
+     * keeps the drawing fast when the view is zoomed out.
+     * @param eventDetailMinHeight The height in px.
+     */
+    public void setEventDetailMinHeight(int eventDetailMinHeight) {
+        mEventDetailMinHeight = eventDetailMinHeight;
+        invalidateStyle();
+    }
+
+    public int getEventDetailMinWidth() {
+        return mEventDetailMinWidth;
+    }
+
+    /**
+     * Set the width below which events are drawn as plain rectangles without their titles.
+     * @param eventDetailMinWidth The width in px.
+     */
+    public void setEventDetailMinWidth(int eventDetailMinWidth) {
+        mEventDetailMinWidth = eventDetailMinWidth;
+        invalidateStyle();
+    }
+
+    public int getEventGroupMinWidth() {
+        return mEventGroupMinWidth;
+    }
+
+    /**
+     * Set the width below which overlapping events are collapsed into a single block that shows
+     * the number of events. If any event of a group of overlapping events would be narrower, the
+     * whole group is collapsed.
+     * @param eventGroupMinWidth The width in px. Use 0 to never collapse events.
+     */
+    public void setEventGroupMinWidth(int eventGroupMinWidth) {
+        mEventGroupMinWidth = eventGroupMinWidth;
+        invalidateStyle();
+    }
+
     /////////////////////////////////////////////////////////////////
     //
     //      Functions related to scrolling.
@@ -1862,10 +2880,12 @@ public class WeekView extends View {
             mScroller.forceFinished(true);
             // Snap to date.
             mScroller.startScroll((int) mCurrentOrigin.x, (int) mCurrentOrigin.y, -nearestOrigin, 0, (int) (Math.abs(nearestOrigin) / mWidthPerDay * mScrollDuration));
-            ViewCompat.postInvalidateOnAnimation(WeekView.this);
+            postInvalidateDaysOnAnimation();
         }
         // Reset scrolling and fling direction.
         mCurrentScrollDirection = mCurrentFlingDirection = Direction.NONE;
+        mPrefetchFirstPeriod = 0;
+        mPrefetchLastPeriod = -1;
     }
 
 
@@ -1884,7 +2904,10 @@ public class WeekView extends View {
             } else if (mScroller.computeScrollOffset()) {
                 mCurrentOrigin.y = mScroller.getCurrY();
                 mCurrentOrigin.x = mScroller.getCurrX();
-                ViewCompat.postInvalidateOnAnimation(this);
+                if (mCurrentFlingDirection == Direction.VERTICAL)
+                    postInvalidateHoursOnAnimation();
+                else
+                    postInvalidateDaysOnAnimation();
             }
         }
     }
@@ -1935,8 +2958,6 @@ public class WeekView extends View {
             return;
         }
 
-        mRefreshEvents = true;
-
         Calendar today = Calendar.getInstance();
         today.set(Calendar.HOUR_OF_DAY, 0);
         today.set(Calendar.MINUTE, 0);
@@ -1951,6 +2972,57 @@ public class WeekView extends View {
         invalidate();
     }
 
+    /**
+     * Get the events that are drawn at a position, for example the position of a touch event.
+     * @param x The x position.
+     * @param y The y position.
+     * @return The events at the position. The event that is drawn on top comes first.
+     */
+    public List<WeekViewEvent> getEventsAt(float x, float y) {
+        List<Integer> commands = new ArrayList<Integer>();
+        mLayout.getCommandsAt(x, y, commands);
+        List<WeekViewEvent> events = new ArrayList<WeekViewEvent>(commands.size());
+        for (int i = 0; i < commands.size(); i++) {
+            events.add(mLayout.getCommandEntry(commands.get(i)).originalEvent);
+        }
+        return events;
+    }
+
+    /**
+     * Add an event without loading the events again. Only the days of the event are laid out
+     * again. The event is added to the period in which it starts if the events of that period are
+     * loaded. Since the events of a period are replaced when it is loaded again, the loader should
+     * return the event from now on as well.
+     * @param event The event to add.
+     */
+    public void addEvent(WeekViewEvent event) {
+        if (event == null)
+            throw new IllegalArgumentException("event must not be null");
+        changeEvents(Collections.<Long>emptySet(), Collections.singletonList(event));
+    }
+
+    /**
+     * Replace the events that have the same id as the given event, without loading the events
+     * again. Only the days of the old and the new event are laid out again. If there is no event
+     * with the id, the event is added like with {@link #addEvent(WeekViewEvent)}. The loader
+     * should return the new event from now on as well.
+     * @param event The new version of the event.
+     */
+    public void updateEvent(WeekViewEvent event) {
+        if (event == null)
+            throw new IllegalArgumentException("event must not be null");
+        changeEvents(Collections.singleton(event.getId()), Collections.singletonList(event));
+    }
+
+    /**
+     * Remove the events with an id without loading the events again. Only the days of the
+     * removed events are laid out again. The loader should not return the events anymore.
+     * @param eventId The id of the events to remove.
+     */
+    public void removeEvent(long eventId) {
+        changeEvents(Collections.singleton(eventId), Collections.<WeekViewEvent>emptyList());
+    }
+
     /**
      * Refreshes the view and loads the events again.
      */
@@ -2042,4 +3114,32 @@ public class WeekView extends View {
          */
         void onFirstVisibleDayChanged(Calendar newFirstVisibleDay, Calendar oldFirstVisibleDay);
     }
+
+    /**
+     * Receives timings of the week view. All methods are called on the UI thread and should return
+     * quickly, because they are called while drawing.
+     */
+    public interface MetricsListener {
+        /**
+         * Called at the end of every frame.
+         * @param frame The timings of the frame. The object is reused for the next frame.
+         */
+        void onFrameDrawn(FrameMetrics frame);
+
+        /**
+         * Called when the loader has returned the events of a period.
+         * @param periodIndex The loaded period.
+         * @param eventCount The number of loaded events.
+         * @param durationNanos The time the loader took in nanoseconds.
+         */
+        void onPeriodLoaded(int periodIndex, int eventCount, long durationNanos);
+
+        /**
+         * Called when the events of the shown periods have been laid out, completely or only the
+         * changed days.
+         * @param eventCount The number of event rectangles in the layout.
+         * @param durationNanos The time the layout took in nanoseconds, on whichever thread it ran.
+         */
+        void onEventsLaidOut(int eventCount, long durationNanos);
+    }
 }
@@ -14,6 +14,9 @@ public class WeekViewEvent {
     private long mId;
     private Calendar mStartTime;
     private Calendar mEndTime;
+    private long mStartTimeInMillis;
+    private long mEndTimeInMillis;
+    private int mStartEpochDay;
     private String mName;
     private String mLocation;
     private int mColor;
@@ -56,6 +59,7 @@ public class WeekViewEvent {
         this.mEndTime.set(Calendar.MINUTE, endMinute);
 
         this.mName = name;
+        updateTimes();
     }
 
     /**
@@ -74,6 +78,7 @@ public class WeekViewEvent {
         this.mStartTime = startTime;
         this.mEndTime = endTime;
         this.mAllDay = allDay;
+        updateTimes();
     }
 
     /**
@@ -106,6 +111,7 @@ public class WeekViewEvent {
 
     public void setStartTime(Calendar startTime) {
         this.mStartTime = startTime;
+        updateTimes();
     }
 
     public Calendar getEndTime() {
@@ -114,6 +120,49 @@ public class WeekViewEvent {
 
     public void setEndTime(Calendar endTime) {
         this.mEndTime = endTime;
+        updateTimes();
+    }
+
+    /**
+     * Get the start time as a primitive. It is calculated whenever the start time is set, so it is
+     * much cheaper than {@code getStartTime().getTimeInMillis()}. If the calendar returned by
+     * {@link #getStartTime()} is modified directly, set it again with
+     * {@link #setStartTime(Calendar)} to update this value.
+     * @return The start time in milliseconds since the epoch.
+     */
+    public long getStartTimeInMillis() {
+        return mStartTimeInMillis;
+    }
+
+    /**
+     * Get the end time as a primitive. See {@link #getStartTimeInMillis()}.
+     * @return The end time in milliseconds since the epoch.
+     */
+    public long getEndTimeInMillis() {
+        return mEndTimeInMillis;
+    }
+
+    /**
+     * Get the day on which the event starts. See {@link #getStartTimeInMillis()}.
+     * @return The epoch day of the start time, see {@link WeekViewUtil#getEpochDay(Calendar)}.
+     */
+    public int getStartEpochDay() {
+        return mStartEpochDay;
+    }
+
+    /**
+     * Calculate the primitive start and end times from the start and end calendars.
+     */
+    void updateTimes() {
+        Calendar startTime = getStartTime();
+        Calendar endTime = getEndTime();
+        if (startTime != null) {
+            mStartTimeInMillis = startTime.getTimeInMillis();
+            mStartEpochDay = getEpochDay(startTime);
+        }
+        if (endTime != null) {
+            mEndTimeInMillis = endTime.getTimeInMillis();
+        }
     }
 
     public String getName() {
@@ -0,0 +1,832 @@
+package com.alamkanak.weekview;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Calculates where the events are drawn on the week view, without depending on the Android
+ * framework. The layout is done in two steps:
+ * <ol>
+ *     <li>{@link #buildSnapshot(List)} splits the events by day and calculates their columns. This
+ *     only has to be done again when the events change. The events are split and copied with
+ *     {@link #prepareEvents(List)} on the thread that owns them, and the columns can then be
+ *     calculated on any thread with {@link #buildSnapshot(EventBatch)}. The result is an
+ *     immutable {@link Snapshot} that is published with {@link #setSnapshot(Snapshot)}.</li>
+ *     <li>{@link #computeDrawCommands(Viewport)} calculates the rectangles of the events of the
+ *     current snapshot that are visible in a viewport. This is done for every frame, on the UI
+ *     thread.</li>
+ * </ol>
+ * The result of the second step is a flat list of draw commands, each one being the slot of an
+ * entry in the snapshot and the rectangle in which it is drawn. The week view just replays these
+ * commands on its canvas.
+ */
+public class WeekViewLayout {
+    private static final float MINUTES_PER_DAY = 1440;
+
+    /**
+     * Orders the entries of a day like {@link #prepareEvents(List)} does: by the start and then the
+     * end of the original events.
+     */
+    private static final Comparator<Entry> ENTRY_COMPARATOR = new Comparator<Entry>() {
+        @Override
+        public int compare(Entry entry1, Entry entry2) {
+            long start1 = entry1.originalStartTime;
+            long start2 = entry2.originalStartTime;
+            int comparator = start1 > start2 ? 1 : (start1 < start2 ? -1 : 0);
+            if (comparator == 0) {
+                long end1 = entry1.originalEndTime;
+                long end2 = entry2.originalEndTime;
+                comparator = end1 > end2 ? 1 : (end1 < end2 ? -1 : 0);
+            }
+            return comparator;
+        }
+    };
+
+    private volatile Snapshot mSnapshot = Snapshot.EMPTY;
+    private volatile EventLayoutEngine mEventLayoutEngine = new SweepLineLayoutEngine();
+
+    // The draw commands of the last viewport.
+    private Snapshot mCommandSnapshot = Snapshot.EMPTY;
+    private int[] mCommandSlots = new int[16];
+    private float[] mCommandRects = new float[16 * 4];
+    private int mCommandCount;
+    private int[] mSegmentStarts = new int[1];
+    private int mDayCount;
+    private float mClipLeft;
+    private float mStartPixel;
+    private float mWidthPerDay;
+    private float mColumnGap;
+
+    /**
+     * An event, or the part of an event that falls on one day, along with its position in the day.
+     * Renderers can subclass it to keep their own data with the entry, see
+     * {@link #createEntry(WeekViewEvent, WeekViewEvent)}.
+     */
+    public static class Entry {
+        /** The part of the event that falls on the day of this entry. */
+        public final WeekViewEvent event;
+        /** The event as it was loaded. */
+        public final WeekViewEvent originalEvent;
+        /** The left position as a fraction of the width of the day. */
+        public float left;
+        /** The width as a fraction of the width of the day. */
+        public float width;
+        /** The start in minutes since the start of the day. Always 0 for all-day events. */
+        public float top;
+        /** The end in minutes since the start of the day. Always 0 for all-day events. */
+        public float bottom;
+        /** Whether the entry belongs to a snapshot. Such an entry is never changed again. */
+        boolean published;
+
+        // Copies of what the layout needs from the events. They are taken on the thread that owns
+        // the events, so a layout on another thread never reads the events themselves.
+        long startTime;
+        long endTime;
+        long originalStartTime;
+        long originalEndTime;
+        int day;
+        float startMinute;
+        float endMinute;
+        boolean allDay;
+        int color;
+
+        public Entry(WeekViewEvent event, WeekViewEvent originalEvent) {
+            this.event = event;
+            this.originalEvent = originalEvent;
+        }
+
+        /**
+         * Copy what the layout needs from the events. The cached times of the events must be up to
+         * date.
+         */
+        void copyEvent() {
+            startTime = event.getStartTimeInMillis();
+            endTime = event.getEndTimeInMillis();
+            originalStartTime = originalEvent.getStartTimeInMillis();
+            originalEndTime = originalEvent.getEndTimeInMillis();
+            day = event.getStartEpochDay();
+            allDay = event.isAllDay();
+            color = event.getColor();
+            if (!allDay) {
+                startMinute = event.getStartTime().get(Calendar.HOUR_OF_DAY) * 60 + event.getStartTime().get(Calendar.MINUTE);
+                endMinute = event.getEndTime().get(Calendar.HOUR_OF_DAY) * 60 + event.getEndTime().get(Calendar.MINUTE);
+            }
+        }
+
+        void copyEventFrom(Entry entry) {
+            startTime = entry.startTime;
+            endTime = entry.endTime;
+            originalStartTime = entry.originalStartTime;
+            originalEndTime = entry.originalEndTime;
+            day = entry.day;
+            allDay = entry.allDay;
+            color = entry.color;
+            startMinute = entry.startMinute;
+            endMinute = entry.endMinute;
+        }
+    }
+
+    /**
+     * Events that have been split by day and copied for a layout, see {@link #prepareEvents(List)}.
+     * A batch can be laid out on any thread, and its layout can be cancelled from any thread.
+     */
+    public static final class EventBatch {
+        private final List<Entry> mEntries;
+        private volatile boolean mCancelled;
+
+        private EventBatch(List<Entry> entries) {
+            mEntries = entries;
+        }
+
+        /**
+         * Stop the layout of the batch. {@link #buildSnapshot(EventBatch)} returns null once the
+         * batch has been cancelled.
+         */
+        public void cancel() {
+            mCancelled = true;
+        }
+
+        public boolean isCancelled() {
+            return mCancelled;
+        }
+    }
+
+    /**
+     * Buffers for the column layout of the days. Each build has its own, so builds on different
+     * threads never wait for each other.
+     */
+    private static final class LayoutBuffers {
+        final List<Entry> timedEntries = new ArrayList<Entry>();
+        final List<Entry> allDayEntries = new ArrayList<Entry>();
+        long[] startTimes = new long[16];
+        long[] endTimes = new long[16];
+        float[] lefts = new float[16];
+        float[] widths = new float[16];
+    }
+
+    /**
+     * The laid out events of a set of periods. A snapshot is never changed after it has been built,
+     * so it can be handed from a background thread to the UI thread.
+     */
+    public static final class Snapshot {
+        static final Snapshot EMPTY = new Snapshot(new DayIndex<Entry>());
+
+        private final List<Entry> mEntries;
+        private final DayIndex<Entry> mEntriesByDay;
+
+        // The positions of the entries are copied into arrays that are indexed by the slot of an
+        // entry in mEntries, so the draw commands can be computed without visiting the entries.
+        // The days are sorted, and the slots of a day go from its start to the start of the next
+        // day, with the timed events before the all-day events. They are package-private, so the
+        // layout reads them without accessor methods.
+        final int[] mDays;
+        final int[] mDayStarts;
+        final int[] mAllDayStarts;
+        final float[] mLefts;
+        final float[] mWidths;
+        final float[] mTops;
+        final float[] mBottoms;
+        final int[] mColors;
+
+        private Snapshot(DayIndex<Entry> entriesByDay) {
+            int dayCount = entriesByDay.size();
+            int count = 0;
+            for (int i = 0; i < dayCount; i++) {
+                count += entriesByDay.valueAt(i).size();
+            }
+
+            List<Entry> entries = new ArrayList<Entry>(count);
+            mDays = new int[dayCount];
+            mDayStarts = new int[dayCount + 1];
+            mAllDayStarts = new int[dayCount];
+            mLefts = new float[count];
+            mWidths = new float[count];
+            mTops = new float[count];
+            mBottoms = new float[count];
+            mColors = new int[count];
+            for (int i = 0; i < dayCount; i++) {
+                mDays[i] = entriesByDay.dayAt(i);
+                mDayStarts[i] = entries.size();
+                mAllDayStarts[i] = entries.size();
+                List<Entry> entriesOfDay = entriesByDay.valueAt(i);
+                for (int j = 0; j < entriesOfDay.size(); j++) {
+                    Entry entry = entriesOfDay.get(j);
+                    int slot = entries.size();
+                    if (!entry.allDay)
+                        mAllDayStarts[i] = slot + 1;
+                    mLefts[slot] = entry.left;
+                    mWidths[slot] = entry.width;
+                    mTops[slot] = entry.top;
+                    mBottoms[slot] = entry.bottom;
+                    mColors[slot] = entry.color;
+                    entry.published = true;
+                    entries.add(entry);
+                }
+            }
+            mDayStarts[dayCount] = entries.size();
+            mEntries = Collections.unmodifiableList(entries);
+            mEntriesByDay = entriesByDay;
+        }
+
+        /**
+         * @param epochDay The day.
+         * @return The index of the day in {@link #mDays}, or a negative value if it has no entries.
+         */
+        int indexOfDay(int epochDay) {
+            return Arrays.binarySearch(mDays, epochDay);
+        }
+
+        /**
+         * @return All the entries in drawing order, grouped by day.
+         */
+        public List<Entry> getEntries() {
+            return mEntries;
+        }
+
+        /**
+         * Get the entries of a day in drawing order: the timed events first, then the all-day
+         * events.
+         * @param epochDay The day.
+         * @return The entries or null if there are none.
+         */
+        public List<Entry> getEntriesOfDay(int epochDay) {
+            return mEntriesByDay.get(epochDay);
+        }
+
+        /**
+         * Collect the days on which events have been laid out.
+         * @param events The events as they were laid out. They are compared by identity, so the
+         *               days are found even if the events have been changed since.
+         * @param days The list to which the epoch days are added, in ascending order.
+         */
+        public void getDaysOf(Collection<? extends WeekViewEvent> events, List<Integer> days) {
+            if (events.isEmpty())
+                return;
+            Set<WeekViewEvent> eventSet = Collections.newSetFromMap(new IdentityHashMap<WeekViewEvent, Boolean>());
+            eventSet.addAll(events);
+            for (int i = 0; i < mDays.length; i++) {
+                for (int slot = mDayStarts[i]; slot < mDayStarts[i + 1]; slot++) {
+                    if (eventSet.contains(mEntries.get(slot).originalEvent)) {
+                        days.add(mDays[i]);
+                        break;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Check whether there is an all-day event in a range of days.
+         * @param firstDay The epoch day of the first day.
+         * @param dayCount The number of days.
+         * @return True if at least one of the days has an all-day event.
+         */
+        public boolean hasAllDayEvents(int firstDay, int dayCount) {
+            for (int day = firstDay; day < firstDay + dayCount; day++) {
+                int index = indexOfDay(day);
+                if (index >= 0 && mAllDayStarts[index] < mDayStarts[index + 1])
+                    return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * The visible area of the week view and the dimensions that are needed to position the events
+     * in it. All the values are in pixels unless mentioned otherwise.
+     */
+    public static class Viewport {
+        /** The epoch day of the leftmost day column. */
+        public int firstDay;
+        /** The number of day columns, including the partially visible ones. */
+        public int dayCount;
+        /** The left position of the leftmost day column. */
+        public float startPixel;
+        public float widthPerDay;
+        public float columnGap;
+        public float hourHeight;
+        /** The vertical scroll offset. */
+        public float originY;
+        /** The top of the area of the timed events, where 00:00 is when not scrolled. */
+        public float eventsTop;
+        /** The top of the all-day events in the header. */
+        public float allDayEventsTop;
+        public float allDayEventHeight;
+        public float eventMarginVertical;
+        public float overlappingEventGap;
+        /** The left edge of the area in which events are visible (the width of the time column). */
+        public float clipLeft;
+        /** The width of the view. */
+        public float width;
+        /** The height of the view. */
+        public float height;
+    }
+
+    /**
+     * Create the entry of an event. Override this to create a subclass of {@link Entry}. This is
+     * called on the thread that prepares the events or updates a snapshot.
+     * @param event The part of the event that falls on one day.
+     * @param originalEvent The event as it was loaded.
+     * @return The entry.
+     */
+    protected Entry createEntry(WeekViewEvent event, WeekViewEvent originalEvent) {
+        return new Entry(event, originalEvent);
+    }
+
+    public EventLayoutEngine getEventLayoutEngine() {
+        return mEventLayoutEngine;
+    }
+
+    /**
+     * Set the engine which calculates the horizontal position of overlapping events. It is used by
+     * the snapshots that are built afterwards, possibly on a background thread.
+     * @param eventLayoutEngine The event layout engine.
+     */
+    public void setEventLayoutEngine(EventLayoutEngine eventLayoutEngine) {
+        if (eventLayoutEngine == null)
+            throw new IllegalArgumentException("eventLayoutEngine must not be null");
+        mEventLayoutEngine = eventLayoutEngine;
+    }
+
+    /**
+     * Remove all the entries and draw commands.
+     */
+    public void clear() {
+        mSnapshot = Snapshot.EMPTY;
+        clearDrawCommands();
+    }
+
+    /**
+     * @return The snapshot from which the draw commands are computed.
+     */
+    public Snapshot getSnapshot() {
+        return mSnapshot;
+    }
+
+    /**
+     * Publish a snapshot. The next call of {@link #computeDrawCommands(Viewport)} uses it. This can
+     * be called from any thread.
+     * @param snapshot The snapshot.
+     */
+    public void setSnapshot(Snapshot snapshot) {
+        if (snapshot == null)
+            throw new IllegalArgumentException("snapshot must not be null");
+        mSnapshot = snapshot;
+    }
+
+    /**
+     * Lay out events and publish the result right away.
+     * @param eventsOfPeriods The events, see {@link #buildSnapshot(List)}.
+     */
+    public void setEvents(List<? extends List<? extends WeekViewEvent>> eventsOfPeriods) {
+        setSnapshot(buildSnapshot(eventsOfPeriods));
+    }
+
+    /**
+     * Split the events by day, sort them and calculate their positions. The entries of a day are
+     * ordered the way they are drawn: the timed events first, then the all-day events. Events
+     * that end before they start are ignored. This must be called on the thread that changes the
+     * events, usually the UI thread.
+     * @param eventsOfPeriods The lists of events to lay out, usually one for each period. The lists
+     *                        are not changed.
+     * @return The laid out events.
+     */
+    public Snapshot buildSnapshot(List<? extends List<? extends WeekViewEvent>> eventsOfPeriods) {
+        return buildSnapshot(prepareEvents(eventsOfPeriods));
+    }
+
+    /**
+     * Split the events by day and copy what the layout needs from them, so that they can be laid
+     * out on another thread with {@link #buildSnapshot(EventBatch)}. This must be called on the
+     * thread that changes the events, usually the UI thread. Events that end before they start are
+     * ignored.
+     * @param eventsOfPeriods The lists of events to lay out, usually one for each period. The lists
+     *                        are not changed.
+     * @return The events, ready to be laid out.
+     */
+    public EventBatch prepareEvents(List<? extends List<? extends WeekViewEvent>> eventsOfPeriods) {
+        List<Entry> entries = new ArrayList<Entry>();
+        for (List<? extends WeekViewEvent> events : eventsOfPeriods) {
+            addEvents(events, entries);
+        }
+        return new EventBatch(entries);
+    }
+
+    /**
+     * Group the prepared events by day and calculate their positions. The entries of a day are
+     * ordered the way they are drawn: the timed events first, then the all-day events. This can be
+     * called from any thread, as it only reads the copies made by {@link #prepareEvents(List)}.
+     * @param batch The prepared events. A batch can only be laid out once.
+     * @return The laid out events, or null if the batch has been cancelled.
+     */
+    public Snapshot buildSnapshot(EventBatch batch) {
+        // Group the entries by day in a single pass. The entries are sorted, so the days are
+        // mostly appended at the end.
+        List<Entry> entries = batch.mEntries;
+        DayIndex<Entry> entriesByDay = new DayIndex<Entry>();
+        for (int i = 0; i < entries.size(); i++) {
+            Entry entry = entries.get(i);
+            entriesByDay.add(entry.day, entry);
+        }
+
+        EventLayoutEngine eventLayoutEngine = mEventLayoutEngine;
+        LayoutBuffers buffers = new LayoutBuffers();
+        for (int i = 0; i < entriesByDay.size(); i++) {
+            if (batch.isCancelled())
+                return null;
+            layoutEventsOfDay(entriesByDay.valueAt(i), eventLayoutEngine, buffers);
+        }
+        return new Snapshot(entriesByDay);
+    }
+
+    /**
+     * Sort the events and add them, split by day.
+     * @param events The events to add.
+     * @param entries The list to which the entries are added.
+     */
+    private void addEvents(List<? extends WeekViewEvent> events, List<Entry> entries) {
+        List<WeekViewEvent> sortedEvents = new ArrayList<WeekViewEvent>(events);
+
+        // The calendars of the events may have been changed since they were set.
+        for (WeekViewEvent event : sortedEvents) {
+            event.updateTimes();
+        }
+        WeekViewUtil.sortEvents(sortedEvents);
+        for (WeekViewEvent event : sortedEvents) {
+            if (event.getStartTimeInMillis() >= event.getEndTimeInMillis())
+                continue;
+            List<WeekViewEvent> splitEvents = event.splitWeekViewEvents();
+            for (WeekViewEvent splitEvent : splitEvents) {
+                Entry entry = createEntry(splitEvent, event);
+                entry.copyEvent();
+                entries.add(entry);
+            }
+        }
+    }
+
+    /**
+     * Apply changes of single events to a snapshot. Only the days on which events are removed or
+     * added are laid out again. The entries of the other days, and the entries that keep their
+     * position, are shared with the given snapshot. Like {@link #prepareEvents(List)}, this must be
+     * called on the thread that changes the events.
+     * @param snapshot The snapshot to change. It stays unchanged.
+     * @param removedEvents The events to remove. They are compared by identity, so these must be
+     *                      the instances that were laid out.
+     * @param addedEvents The events to add.
+     * @return The changed snapshot.
+     */
+    public Snapshot updateSnapshot(Snapshot snapshot, Collection<? extends WeekViewEvent> removedEvents, List<? extends WeekViewEvent> addedEvents) {
+        Set<WeekViewEvent> removedEventSet = Collections.newSetFromMap(new IdentityHashMap<WeekViewEvent, Boolean>());
+        removedEventSet.addAll(removedEvents);
+
+        List<Entry> addedEntries = new ArrayList<Entry>();
+        addEvents(addedEvents, addedEntries);
+        DayIndex<Entry> addedEntriesByDay = new DayIndex<Entry>();
+        for (int i = 0; i < addedEntries.size(); i++) {
+            Entry entry = addedEntries.get(i);
+            addedEntriesByDay.add(entry.day, entry);
+        }
+
+        // Walk through the days of both indices in ascending order.
+        DayIndex<Entry> oldEntriesByDay = snapshot.mEntriesByDay;
+        DayIndex<Entry> entriesByDay = new DayIndex<Entry>();
+        EventLayoutEngine eventLayoutEngine = mEventLayoutEngine;
+        LayoutBuffers buffers = new LayoutBuffers();
+        int oldIndex = 0;
+        int addedIndex = 0;
+        while (oldIndex < oldEntriesByDay.size() || addedIndex < addedEntriesByDay.size()) {
+            int oldDay = oldIndex < oldEntriesByDay.size() ? oldEntriesByDay.dayAt(oldIndex) : Integer.MAX_VALUE;
+            int addedDay = addedIndex < addedEntriesByDay.size() ? addedEntriesByDay.dayAt(addedIndex) : Integer.MAX_VALUE;
+            int day = Math.min(oldDay, addedDay);
+            List<Entry> oldEntriesOfDay = day == oldDay ? oldEntriesByDay.valueAt(oldIndex++) : null;
+            List<Entry> addedEntriesOfDay = day == addedDay ? addedEntriesByDay.valueAt(addedIndex++) : null;
+
+            List<Entry> entriesOfDay = oldEntriesOfDay;
+            if (addedEntriesOfDay != null || containsAny(oldEntriesOfDay, removedEventSet)) {
+                entriesOfDay = new ArrayList<Entry>();
+                if (oldEntriesOfDay != null) {
+                    for (int i = 0; i < oldEntriesOfDay.size(); i++) {
+                        Entry entry = oldEntriesOfDay.get(i);
+                        if (!removedEventSet.contains(entry.originalEvent))
+                            entriesOfDay.add(entry);
+                    }
+                }
+                if (addedEntriesOfDay != null)
+                    entriesOfDay.addAll(addedEntriesOfDay);
+                if (entriesOfDay.isEmpty())
+                    continue;
+                Collections.sort(entriesOfDay, ENTRY_COMPARATOR);
+                layoutEventsOfDay(entriesOfDay, eventLayoutEngine, buffers);
+            }
+            entriesByDay.put(day, entriesOfDay);
+        }
+        return new Snapshot(entriesByDay);
+    }
+
+    private static boolean containsAny(List<Entry> entries, Set<WeekViewEvent> events) {
+        if (entries == null || events.isEmpty())
+            return false;
+        for (int i = 0; i < entries.size(); i++) {
+            if (events.contains(entries.get(i).originalEvent))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Calculate the positions of the entries of one day. All-day events never collide with the
+     * other events.
+     * @param entries The entries of the day. The list is reordered into the drawing order.
+     */
+    private void layoutEventsOfDay(List<Entry> entries, EventLayoutEngine eventLayoutEngine, LayoutBuffers buffers) {
+        List<Entry> timedEntries = buffers.timedEntries;
+        List<Entry> allDayEntries = buffers.allDayEntries;
+        for (int i = 0; i < entries.size(); i++) {
+            Entry entry = entries.get(i);
+            if (entry.allDay)
+                allDayEntries.add(entry);
+            else
+                timedEntries.add(entry);
+        }
+
+        expandEventsToMaxWidth(timedEntries, eventLayoutEngine, buffers);
+        expandEventsToMaxWidth(allDayEntries, eventLayoutEngine, buffers);
+
+        entries.clear();
+        entries.addAll(timedEntries);
+        entries.addAll(allDayEntries);
+        timedEntries.clear();
+        allDayEntries.clear();
+    }
+
+    /**
+     * Expands all the entries to maximum possible width. The entries will try to occupy maximum
+     * space available horizontally.
+     * @param entries The entries of a day which may overlap with each other.
+     */
+    private void expandEventsToMaxWidth(List<Entry> entries, EventLayoutEngine eventLayoutEngine, LayoutBuffers buffers) {
+        int count = entries.size();
+        if (count == 0)
+            return;
+
+        if (buffers.startTimes.length < count) {
+            int length = Math.max(count, buffers.startTimes.length * 2);
+            buffers.startTimes = new long[length];
+            buffers.endTimes = new long[length];
+            buffers.lefts = new float[length];
+            buffers.widths = new float[length];
+        }
+        long[] startTimes = buffers.startTimes;
+        long[] endTimes = buffers.endTimes;
+        float[] lefts = buffers.lefts;
+        float[] widths = buffers.widths;
+        for (int i = 0; i < count; i++) {
+            startTimes[i] = entries.get(i).startTime;
+            endTimes[i] = entries.get(i).endTime;
+        }
+        eventLayoutEngine.computePositions(startTimes, endTimes, count, lefts, widths);
+
+        for (int i = 0; i < count; i++) {
+            Entry entry = entries.get(i);
+            float top = entry.startMinute;
+            float bottom = entry.endMinute;
+
+            // Entries of a published snapshot may be drawn right now, so they are copied instead
+            // of being changed. Entries that keep their position are shared by both snapshots.
+            if (entry.published) {
+                if (entry.left == lefts[i] && entry.width == widths[i] && entry.top == top && entry.bottom == bottom)
+                    continue;
+                Entry copy = createEntry(entry.event, entry.originalEvent);
+                copy.copyEventFrom(entry);
+                entry = copy;
+                entries.set(i, entry);
+            }
+            entry.left = lefts[i];
+            entry.width = widths[i];
+            entry.top = top;
+            entry.bottom = bottom;
+        }
+    }
+
+    /**
+     * Calculate the rectangles of the entries that are visible in a viewport. The commands are
+     * ordered by the timed events of each day, followed by the all-day events of each day.
+     * @param viewport The viewport.
+     */
+    public void computeDrawCommands(Viewport viewport) {
+        Snapshot snapshot = mSnapshot;
+        mCommandSnapshot = snapshot;
+        mCommandCount = 0;
+        mDayCount = viewport.dayCount;
+        mClipLeft = viewport.clipLeft;
+        mStartPixel = viewport.startPixel;
+        mWidthPerDay = viewport.widthPerDay;
+        mColumnGap = viewport.columnGap;
+        if (mSegmentStarts.length < mDayCount * 2 + 1)
+            mSegmentStarts = new int[mDayCount * 2 + 1];
+
+        float startPixel = viewport.startPixel;
+        for (int dayIndex = 0; dayIndex < mDayCount; dayIndex++) {
+            mSegmentStarts[dayIndex] = mCommandCount;
+            int index = snapshot.indexOfDay(viewport.firstDay + dayIndex);
+            if (index >= 0) {
+                for (int slot = snapshot.mDayStarts[index]; slot < snapshot.mAllDayStarts[index]; slot++) {
+                    float top = viewport.hourHeight * 24 * snapshot.mTops[slot] / MINUTES_PER_DAY + viewport.originY + viewport.eventsTop + viewport.eventMarginVertical;
+                    float bottom = viewport.hourHeight * 24 * snapshot.mBottoms[slot] / MINUTES_PER_DAY + viewport.originY + viewport.eventsTop - viewport.eventMarginVertical;
+                    addCommand(viewport, snapshot, slot, startPixel, top, bottom, viewport.eventsTop);
+                }
+            }
+            startPixel += viewport.widthPerDay + viewport.columnGap;
+        }
+
+        startPixel = viewport.startPixel;
+        for (int dayIndex = 0; dayIndex < mDayCount; dayIndex++) {
+            mSegmentStarts[mDayCount + dayIndex] = mCommandCount;
+            int index = snapshot.indexOfDay(viewport.firstDay + dayIndex);
+            if (index >= 0) {
+                float top = viewport.allDayEventsTop;
+                float bottom = top + viewport.allDayEventHeight;
+                for (int slot = snapshot.mAllDayStarts[index]; slot < snapshot.mDayStarts[index + 1]; slot++) {
+                    addCommand(viewport, snapshot, slot, startPixel, top, bottom, 0);
+                }
+            }
+            startPixel += viewport.widthPerDay + viewport.columnGap;
+        }
+        mSegmentStarts[mDayCount * 2] = mCommandCount;
+    }
+
+    /**
+     * Add the command to draw an entry if it is visible.
+     * @param slot The slot of the entry in the snapshot.
+     * @param minBottom The bottom of the rectangle must be below this value to be visible.
+     */
+    private void addCommand(Viewport viewport, Snapshot snapshot, int slot, float startFromPixel, float top, float bottom, float minBottom) {
+        // Calculate left and right.
+        float left = startFromPixel + snapshot.mLefts[slot] * viewport.widthPerDay;
+        if (left < startFromPixel)
+            left += viewport.overlappingEventGap;
+        float right = left + snapshot.mWidths[slot] * viewport.widthPerDay;
+        if (right < startFromPixel + viewport.widthPerDay)
+            right -= viewport.overlappingEventGap;
+
+        if (!(left < right &&
+                left < viewport.width &&
+                top < viewport.height &&
+                right > viewport.clipLeft &&
+                bottom > minBottom))
+            return;
+
+        if (mCommandCount == mCommandSlots.length) {
+            mCommandSlots = Arrays.copyOf(mCommandSlots, mCommandCount * 2);
+            mCommandRects = Arrays.copyOf(mCommandRects, mCommandCount * 2 * 4);
+        }
+        mCommandSlots[mCommandCount] = slot;
+        mCommandRects[mCommandCount * 4] = left;
+        mCommandRects[mCommandCount * 4 + 1] = top;
+        mCommandRects[mCommandCount * 4 + 2] = right;
+        mCommandRects[mCommandCount * 4 + 3] = bottom;
+        mCommandCount++;
+    }
+
+    private void clearDrawCommands() {
+        mCommandSnapshot = Snapshot.EMPTY;
+        mCommandCount = 0;
+        mDayCount = 0;
+        mSegmentStarts[0] = 0;
+    }
+
+    /**
+     * @return The number of draw commands of the last viewport.
+     */
+    public int getCommandCount() {
+        return mCommandCount;
+    }
+
+    /**
+     * Get the first draw command of a day column.
+     * @param dayIndex The index of the day column in the viewport.
+     * @param allDay Whether to get the commands of the all-day events or of the timed events.
+     * @return The index of the first command.
+     */
+    public int getCommandStart(int dayIndex, boolean allDay) {
+        return mSegmentStarts[allDay ? mDayCount + dayIndex : dayIndex];
+    }
+
+    /**
+     * Get the end of the draw commands of a day column.
+     * @param dayIndex The index of the day column in the viewport.
+     * @param allDay Whether to get the commands of the all-day events or of the timed events.
+     * @return The index after the last command.
+     */
+    public int getCommandEnd(int dayIndex, boolean allDay) {
+        return mSegmentStarts[(allDay ? mDayCount + dayIndex : dayIndex) + 1];
+    }
+
+    public Entry getCommandEntry(int command) {
+        return mCommandSnapshot.getEntries().get(mCommandSlots[command]);
+    }
+
+    /**
+     * Get the color of the event of a draw command, without looking up its entry.
+     * @param command The index of the draw command.
+     * @return The color of the event, 0 if it has none.
+     */
+    public int getCommandColor(int command) {
+        return mCommandSnapshot.mColors[mCommandSlots[command]];
+    }
+
+    public float getCommandLeft(int command) {
+        return mCommandRects[command * 4];
+    }
+
+    public float getCommandTop(int command) {
+        return mCommandRects[command * 4 + 1];
+    }
+
+    public float getCommandRight(int command) {
+        return mCommandRects[command * 4 + 2];
+    }
+
+    public float getCommandBottom(int command) {
+        return mCommandRects[command * 4 + 3];
+    }
+
+    /**
+     * Get the rectangles of all the draw commands.
+     * @return Four values (left, top, right, bottom) for each command. The array may be longer
+     * than needed.
+     */
+    public float[] getCommandRects() {
+        return mCommandRects;
+    }
+
+    /**
+     * Get the topmost draw command at a position. Only the commands of the day column at the
+     * position are looked at.
+     * @param x The x position.
+     * @param y The y position.
+     * @return The index of the command or -1 if no entry was drawn at the position.
+     */
+    public int getCommandAt(float x, float y) {
+        int dayIndex = getDayIndexAt(x);
+        if (dayIndex < 0)
+            return -1;
+
+        // The all-day commands are drawn after the timed ones, and the last command is on top.
+        for (int i = getCommandEnd(dayIndex, true) - 1; i >= getCommandStart(dayIndex, true); i--) {
+            if (commandContains(i, x, y))
+                return i;
+        }
+        for (int i = getCommandEnd(dayIndex, false) - 1; i >= getCommandStart(dayIndex, false); i--) {
+            if (commandContains(i, x, y))
+                return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Get all the draw commands at a position. Only the commands of the day column at the position
+     * are looked at.
+     * @param x The x position.
+     * @param y The y position.
+     * @param commands The list to which the indices of the commands are added. The command that
+     *                 is drawn on top comes first.
+     */
+    public void getCommandsAt(float x, float y, List<Integer> commands) {
+        int dayIndex = getDayIndexAt(x);
+        if (dayIndex < 0)
+            return;
+        for (int i = getCommandEnd(dayIndex, true) - 1; i >= getCommandStart(dayIndex, true); i--) {
+            if (commandContains(i, x, y))
+                commands.add(i);
+        }
+        for (int i = getCommandEnd(dayIndex, false) - 1; i >= getCommandStart(dayIndex, false); i--) {
+            if (commandContains(i, x, y))
+                commands.add(i);
+        }
+    }
+
+    /**
+     * Get the day column at a horizontal position of the last viewport.
+     * @param x The x position.
+     * @return The index of the day column in the viewport or -1 if there is no day column at the
+     * position.
+     */
+    private int getDayIndexAt(float x) {
+        if (x <= mClipLeft || mWidthPerDay <= 0)
+            return -1;
+        int dayIndex = (int) Math.floor((x - mStartPixel) / (mWidthPerDay + mColumnGap));
+        return dayIndex < 0 || dayIndex >= mDayCount ? -1 : dayIndex;
+    }
+
+    private boolean commandContains(int command, float x, float y) {
+        return x > mCommandRects[command * 4] && x < mCommandRects[command * 4 + 2] &&
+                y > mCommandRects[command * 4 + 1] && y < mCommandRects[command * 4 + 3];
+    }
+}
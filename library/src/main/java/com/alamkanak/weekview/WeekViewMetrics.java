@@ -0,0 +1,204 @@
+package com.alamkanak.weekview;
+
+/**
+ * A {@link WeekView.MetricsListener} that sums up the reported timings in counters and histograms,
+ * so that they can be read or sent somewhere from time to time. Recording does not allocate. All
+ * methods must be called on the UI thread.
+ */
+public class WeekViewMetrics implements WeekView.MetricsListener {
+    private final Histogram mFrameTimes = new Histogram();
+    private final Histogram mFetchTimes = new Histogram();
+    private final Histogram mGridTimes = new Histogram();
+    private final Histogram mEventsTimes = new Histogram();
+    private final Histogram mAllDayEventsTimes = new Histogram();
+    private final Histogram mEventTitlesTimes = new Histogram();
+    private final Histogram mHeaderTimes = new Histogram();
+    private final Histogram mTimeColumnTimes = new Histogram();
+    private final Histogram mLoadTimes = new Histogram();
+    private final Histogram mLayoutTimes = new Histogram();
+    private long mDrawnEventCount;
+    private long mLoadedEventCount;
+    private long mLaidOutEventCount;
+
+    @Override
+    public void onFrameDrawn(FrameMetrics frame) {
+        mFrameTimes.record(frame.totalNanos);
+        if (frame.fetchNanos > 0)
+            mFetchTimes.record(frame.fetchNanos);
+        mGridTimes.record(frame.gridNanos);
+        mEventsTimes.record(frame.eventsNanos);
+        mAllDayEventsTimes.record(frame.allDayEventsNanos);
+        mEventTitlesTimes.record(frame.eventTitlesNanos);
+        mHeaderTimes.record(frame.headerNanos);
+        mTimeColumnTimes.record(frame.timeColumnNanos);
+        mDrawnEventCount += frame.drawnEventCount;
+    }
+
+    @Override
+    public void onPeriodLoaded(int periodIndex, int eventCount, long durationNanos) {
+        mLoadTimes.record(durationNanos);
+        mLoadedEventCount += eventCount;
+    }
+
+    @Override
+    public void onEventsLaidOut(int eventCount, long durationNanos) {
+        mLayoutTimes.record(durationNanos);
+        mLaidOutEventCount += eventCount;
+    }
+
+    /**
+     * Forget everything that has been recorded.
+     */
+    public void reset() {
+        mFrameTimes.reset();
+        mFetchTimes.reset();
+        mGridTimes.reset();
+        mEventsTimes.reset();
+        mAllDayEventsTimes.reset();
+        mEventTitlesTimes.reset();
+        mHeaderTimes.reset();
+        mTimeColumnTimes.reset();
+        mLoadTimes.reset();
+        mLayoutTimes.reset();
+        mDrawnEventCount = 0;
+        mLoadedEventCount = 0;
+        mLaidOutEventCount = 0;
+    }
+
+    public Histogram getFrameTimes() {
+        return mFrameTimes;
+    }
+
+    public Histogram getFetchTimes() {
+        return mFetchTimes;
+    }
+
+    public Histogram getGridTimes() {
+        return mGridTimes;
+    }
+
+    public Histogram getEventsTimes() {
+        return mEventsTimes;
+    }
+
+    public Histogram getAllDayEventsTimes() {
+        return mAllDayEventsTimes;
+    }
+
+    public Histogram getEventTitlesTimes() {
+        return mEventTitlesTimes;
+    }
+
+    public Histogram getHeaderTimes() {
+        return mHeaderTimes;
+    }
+
+    public Histogram getTimeColumnTimes() {
+        return mTimeColumnTimes;
+    }
+
+    public Histogram getLoadTimes() {
+        return mLoadTimes;
+    }
+
+    public Histogram getLayoutTimes() {
+        return mLayoutTimes;
+    }
+
+    /**
+     * @return The number of event rectangles drawn in all frames.
+     */
+    public long getDrawnEventCount() {
+        return mDrawnEventCount;
+    }
+
+    /**
+     * @return The number of events returned by all loads.
+     */
+    public long getLoadedEventCount() {
+        return mLoadedEventCount;
+    }
+
+    /**
+     * @return The number of events in all layouts.
+     */
+    public long getLaidOutEventCount() {
+        return mLaidOutEventCount;
+    }
+
+    /**
+     * A histogram of durations with buckets of powers of two nanoseconds. Bucket i counts the
+     * durations from 2^(i-1) inclusive up to 2^i exclusive nanoseconds.
+     */
+    public static class Histogram {
+        private static final int BUCKET_COUNT = 40;
+
+        private final long[] mBuckets = new long[BUCKET_COUNT];
+        private long mCount;
+        private long mTotalNanos;
+        private long mMaxNanos;
+
+        void record(long nanos) {
+            if (nanos < 0)
+                nanos = 0;
+            mBuckets[Math.min(BUCKET_COUNT - 1, 64 - Long.numberOfLeadingZeros(nanos))]++;
+            mCount++;
+            mTotalNanos += nanos;
+            if (nanos > mMaxNanos)
+                mMaxNanos = nanos;
+        }
+
+        void reset() {
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                mBuckets[i] = 0;
+            }
+            mCount = 0;
+            mTotalNanos = 0;
+            mMaxNanos = 0;
+        }
+
+        public long getCount() {
+            return mCount;
+        }
+
+        public long getTotalNanos() {
+            return mTotalNanos;
+        }
+
+        public long getMaxNanos() {
+            return mMaxNanos;
+        }
+
+        public long getMeanNanos() {
+            return mCount == 0 ? 0 : mTotalNanos / mCount;
+        }
+
+        /**
+         * Get an upper bound of a percentile. The bound is the end of the bucket in which the
+         * percentile falls, so it is at most twice the real value.
+         * @param percentile The percentile between 0 and 100.
+         * @return The upper bound in nanoseconds or 0 if nothing has been recorded.
+         */
+        public long getPercentileNanos(double percentile) {
+            if (percentile < 0 || percentile > 100)
+                throw new IllegalArgumentException("percentile must be between 0 and 100");
+            if (mCount == 0)
+                return 0;
+            long rank = (long) Math.ceil(mCount * percentile / 100);
+            long count = 0;
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                count += mBuckets[i];
+                if (count >= rank && count > 0)
+                    return Math.min(mMaxNanos, (1L << i) - 1);
+            }
+            return mMaxNanos;
+        }
+
+        /**
+         * @return The number of durations in each bucket. The returned array is a copy.
+         */
+        public long[] getBuckets() {
+            return mBuckets.clone();
+        }
+    }
+}
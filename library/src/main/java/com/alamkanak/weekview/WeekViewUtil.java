@@ -1,12 +1,16 @@
 package com.alamkanak.weekview;
 
 import java.util.Calendar;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
 
 /**
  * Created by jesse on 6/02/2016.
  */
 public class WeekViewUtil {
 
+    private static final long MILLIS_PER_DAY = 1000L * 60L * 60L * 24L;
 
     /////////////////////////////////////////////////////////////////
     //
@@ -36,4 +40,40 @@ public class WeekViewUtil {
         today.set(Calendar.MILLISECOND, 0);
         return today;
     }
+
+    /**
+     * Returns the number of days between the epoch and the local date of the given time. Two times
+     * are on the same day (see {@link #isSameDay(Calendar, Calendar)}) if they have the same epoch day.
+     * @param time The time.
+     * @return The epoch day of the time.
+     */
+    public static int getEpochDay(Calendar time) {
+        long millis = time.getTimeInMillis();
+        long localMillis = millis + time.getTimeZone().getOffset(millis);
+        long epochDay = localMillis / MILLIS_PER_DAY;
+        if (localMillis % MILLIS_PER_DAY < 0)
+            epochDay--;
+        return (int) epochDay;
+    }
+
+    /**
+     * Sorts the events in ascending order.
+     * @param events The events to be sorted.
+     */
+    public static void sortEvents(List<? extends WeekViewEvent> events) {
+        Collections.sort(events, new Comparator<WeekViewEvent>() {
+            @Override
+            public int compare(WeekViewEvent event1, WeekViewEvent event2) {
+                long start1 = event1.getStartTimeInMillis();
+                long start2 = event2.getStartTimeInMillis();
+                int comparator = start1 > start2 ? 1 : (start1 < start2 ? -1 : 0);
+                if (comparator == 0) {
+                    long end1 = event1.getEndTimeInMillis();
+                    long end2 = event2.getEndTimeInMillis();
+                    comparator = end1 > end2 ? 1 : (end1 < end2 ? -1 : 0);
+                }
+                return comparator;
+            }
+        });
+    }
 }
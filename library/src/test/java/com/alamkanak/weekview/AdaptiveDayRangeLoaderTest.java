@@ -0,0 +1,111 @@
+package com.alamkanak.weekview;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AdaptiveDayRangeLoaderTest {
+    // Far more events per day than the target, so the periods shrink as much as they may.
+    private static final int EVENTS_PER_DAY = 1000;
+
+    private int mFirstDay;
+    private int mLastDay;
+    private final DayRangeLoader.DayRangeChangeListener mDenseListener = new DayRangeLoader.DayRangeChangeListener() {
+        @Override
+        public List<? extends WeekViewEvent> onDayRangeChange(Calendar firstDay, Calendar lastDay) {
+            mFirstDay = WeekViewUtil.getEpochDay(firstDay);
+            mLastDay = WeekViewUtil.getEpochDay(lastDay);
+            int count = (mLastDay - mFirstDay + 1) * EVENTS_PER_DAY;
+            List<WeekViewEvent> events = new ArrayList<WeekViewEvent>(count);
+            for (int i = 0; i < count; i++) {
+                events.add(new WeekViewEvent());
+            }
+            return events;
+        }
+    };
+
+    private static Calendar day(int epochDay) {
+        Calendar day = Calendar.getInstance();
+        day.clear();
+        day.set(1970, Calendar.JANUARY, 1);
+        day.add(Calendar.DATE, epochDay);
+        return day;
+    }
+
+    /**
+     * Scroll day by day like the week view does: load the period of the first visible day and one
+     * period on each side of it, and check that they cover all the visible days.
+     */
+    private void assertVisibleDaysAreLoaded(AdaptiveDayRangeLoader loader, int firstDay, int dayCount, int visibleDayCount) {
+        for (int day = firstDay; day < firstDay + dayCount; day++) {
+            int periodIndex = (int) loader.toWeekViewPeriodIndex(day(day));
+            loader.onLoad(periodIndex - 1);
+            int loadedFirstDay = mFirstDay;
+            loader.onLoad(periodIndex + 1);
+            int loadedLastDay = mLastDay;
+            loader.onLoad(periodIndex);
+
+            // A partially visible column is shown after the visible days while scrolling.
+            assertTrue("day " + day, loadedFirstDay <= day && day + visibleDayCount <= loadedLastDay);
+        }
+    }
+
+    @Test
+    public void periodsShrinkOnDenseCalendars() {
+        AdaptiveDayRangeLoader loader = new AdaptiveDayRangeLoader(7, mDenseListener);
+        assertVisibleDaysAreLoaded(loader, 16000, 30, 0);
+
+        assertEquals(1, loader.getDayCount());
+    }
+
+    @Test
+    public void periodsAreNotShorterThanTheVisibleDays() {
+        for (int visibleDayCount : new int[] {1, 3, 7}) {
+            AdaptiveDayRangeLoader loader = new AdaptiveDayRangeLoader(7, mDenseListener);
+            assertFalse(loader.setVisibleDayCount(visibleDayCount));
+            assertVisibleDaysAreLoaded(loader, 16000, 60, visibleDayCount);
+            assertEquals(visibleDayCount, loader.getDayCount());
+
+            // Scrolling back creates periods before the first one.
+            assertVisibleDaysAreLoaded(loader, 15900, 60, visibleDayCount);
+        }
+    }
+
+    @Test
+    public void periodsAreCreatedAgainWhenMoreDaysAreVisible() {
+        AdaptiveDayRangeLoader loader = new AdaptiveDayRangeLoader(7, mDenseListener);
+        assertVisibleDaysAreLoaded(loader, 16000, 30, 0);
+        assertEquals(1, loader.getDayCount());
+
+        assertTrue(loader.setVisibleDayCount(3));
+        assertEquals(3, loader.getDayCount());
+        assertVisibleDaysAreLoaded(loader, 16000, 30, 3);
+
+        // The periods are long enough for fewer days.
+        assertFalse(loader.setVisibleDayCount(2));
+        assertVisibleDaysAreLoaded(loader, 16030, 30, 2);
+    }
+
+    @Test
+    public void visibleDaysOutweighTheMaximumDayCount() {
+        AdaptiveDayRangeLoader loader = new AdaptiveDayRangeLoader(1, mDenseListener);
+        loader.setDayCountRange(1, 2);
+        loader.setVisibleDayCount(7);
+
+        assertEquals(7, loader.getDayCount());
+        assertEquals(1, loader.getMinDayCount());
+        assertEquals(2, loader.getMaxDayCount());
+        assertVisibleDaysAreLoaded(loader, 16000, 30, 7);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void visibleDayCountMustBePositive() {
+        new AdaptiveDayRangeLoader(7, mDenseListener).setVisibleDayCount(0);
+    }
+}
@@ -0,0 +1,60 @@
+package com.alamkanak.weekview;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class DayIndexTest {
+
+    @Test
+    public void daysAreSortedWhateverTheOrderOfAdding() {
+        DayIndex<String> index = new DayIndex<String>();
+        index.add(5, "a");
+        index.add(-3, "b");
+        index.add(5, "c");
+        index.add(0, "d");
+
+        assertEquals(3, index.size());
+        assertEquals(-3, index.dayAt(0));
+        assertEquals(0, index.dayAt(1));
+        assertEquals(5, index.dayAt(2));
+        assertEquals(Arrays.asList("a", "c"), index.get(5));
+        assertNull(index.get(1));
+    }
+
+    @Test
+    public void putReplacesTheItemsOfADay() {
+        DayIndex<String> index = new DayIndex<String>();
+        index.add(1, "a");
+        List<String> items = Collections.singletonList("b");
+        index.put(1, items);
+        index.put(0, Collections.singletonList("c"));
+
+        assertEquals(2, index.size());
+        assertSame(items, index.get(1));
+        assertEquals(0, index.dayAt(0));
+    }
+
+    @Test
+    public void growsBeyondItsInitialCapacity() {
+        DayIndex<Integer> index = new DayIndex<Integer>();
+        for (int day = 100; day > 0; day--) {
+            index.add(day, day);
+        }
+        assertEquals(100, index.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i + 1, index.dayAt(i));
+            assertEquals(Collections.singletonList(i + 1), index.valueAt(i));
+        }
+
+        index.clear();
+        assertEquals(0, index.size());
+        assertNull(index.get(1));
+    }
+}
@@ -0,0 +1,133 @@
+package com.alamkanak.weekview;
+
+import org.junit.Test;
+
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DayRangeLoaderTest {
+    private static final int[] DAY_COUNTS = {1, 3, 7};
+
+    private Calendar mFirstDay;
+    private Calendar mLastDay;
+    private final DayRangeLoader.DayRangeChangeListener mListener = new DayRangeLoader.DayRangeChangeListener() {
+        @Override
+        public List<? extends WeekViewEvent> onDayRangeChange(Calendar firstDay, Calendar lastDay) {
+            mFirstDay = firstDay;
+            mLastDay = lastDay;
+            return Collections.emptyList();
+        }
+    };
+
+    private static Calendar day(int year, int month, int dayOfMonth) {
+        Calendar day = Calendar.getInstance();
+        day.clear();
+        day.set(year, month, dayOfMonth);
+        return day;
+    }
+
+    /**
+     * Check every day of a range with every first day of the week and every day count: the period
+     * of a day contains the day, and loading the period starts at the period index again.
+     */
+    private void assertRoundTrip(Calendar firstDay, int dayCount) {
+        for (int length : DAY_COUNTS) {
+            for (int firstDayOfWeek = Calendar.SUNDAY; firstDayOfWeek <= Calendar.SATURDAY; firstDayOfWeek++) {
+                DayRangeLoader loader = new DayRangeLoader(length, mListener);
+                loader.setFirstDayOfWeek(firstDayOfWeek);
+                Calendar day = (Calendar) firstDay.clone();
+                for (int i = 0; i < dayCount; i++) {
+                    String message = "day " + WeekViewUtil.getEpochDay(day) + ", length " + length + ", first day of week " + firstDayOfWeek;
+                    double index = loader.toWeekViewPeriodIndex(day);
+                    int periodIndex = (int) Math.floor(index);
+                    assertTrue(message, periodIndex >= 0);
+
+                    loader.onLoad(periodIndex);
+                    int epochDay = WeekViewUtil.getEpochDay(day);
+                    int periodStart = WeekViewUtil.getEpochDay(mFirstDay);
+                    assertTrue(message, periodStart <= epochDay && epochDay <= WeekViewUtil.getEpochDay(mLastDay));
+                    assertEquals(message, length - 1, WeekViewUtil.getEpochDay(mLastDay) - periodStart);
+                    assertEquals(message, (epochDay - periodStart) / (double) length, index - periodIndex, 1e-9);
+                    assertEquals(message, periodIndex, loader.toWeekViewPeriodIndex(mFirstDay), 0);
+                    assertEquals(message, 0, mFirstDay.get(Calendar.HOUR_OF_DAY));
+                    day.add(Calendar.DATE, 1);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void periodsContainTheirDaysAroundTheEpoch() {
+        // The days before January 1, 1970 have negative epoch days.
+        assertRoundTrip(day(1969, Calendar.NOVEMBER, 1), 100);
+    }
+
+    @Test
+    public void periodsContainTheirDaysInALeapYear() {
+        assertRoundTrip(day(2016, Calendar.JANUARY, 1), 366);
+    }
+
+    @Test
+    public void periodIndicesArePositiveAfterTheYearZero() {
+        assertRoundTrip(day(1, Calendar.JANUARY, 1), 10);
+    }
+
+    @Test
+    public void periodsFollowEachOther() {
+        for (int length : DAY_COUNTS) {
+            DayRangeLoader loader = new DayRangeLoader(length, mListener);
+            int periodIndex = (int) loader.toWeekViewPeriodIndex(day(1969, Calendar.DECEMBER, 20));
+            loader.onLoad(periodIndex);
+            for (int i = 1; i < 20; i++) {
+                Calendar expectedFirstDay = (Calendar) mLastDay.clone();
+                expectedFirstDay.add(Calendar.DATE, 1);
+                loader.onLoad(periodIndex + i);
+                assertEquals(WeekViewUtil.getEpochDay(expectedFirstDay), WeekViewUtil.getEpochDay(mFirstDay));
+            }
+        }
+    }
+
+    @Test
+    public void weeksStartOnTheFirstDayOfTheWeek() {
+        for (int firstDayOfWeek = Calendar.SUNDAY; firstDayOfWeek <= Calendar.SATURDAY; firstDayOfWeek++) {
+            WeekLoader loader = new WeekLoader(mListener);
+            loader.setFirstDayOfWeek(firstDayOfWeek);
+            Calendar day = day(1969, Calendar.DECEMBER, 25);
+            for (int i = 0; i < 14; i++) {
+                loader.onLoad((int) loader.toWeekViewPeriodIndex(day));
+                assertEquals(firstDayOfWeek, mFirstDay.get(Calendar.DAY_OF_WEEK));
+                day.add(Calendar.DATE, 1);
+            }
+        }
+    }
+
+    @Test
+    public void periodsOfAnyLengthAreAlignedToTheFirstDayOfTheWeek() {
+        for (int firstDayOfWeek = Calendar.SUNDAY; firstDayOfWeek <= Calendar.SATURDAY; firstDayOfWeek++) {
+            DayRangeLoader loader = new DayRangeLoader(3, mListener);
+            loader.setFirstDayOfWeek(firstDayOfWeek);
+
+            // The first day of the week that is not before the epoch starts a period.
+            Calendar day = day(1970, Calendar.JANUARY, 1);
+            while (day.get(Calendar.DAY_OF_WEEK) != firstDayOfWeek) {
+                day.add(Calendar.DATE, 1);
+            }
+            double index = loader.toWeekViewPeriodIndex(day);
+            assertEquals(Math.floor(index), index, 0);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void dayCountMustBePositive() {
+        new DayRangeLoader(0, mListener);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void firstDayOfWeekMustBeADayOfTheWeek() {
+        new DayRangeLoader(7, mListener).setFirstDayOfWeek(8);
+    }
+}
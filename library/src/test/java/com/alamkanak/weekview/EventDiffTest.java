@@ -0,0 +1,85 @@
+package com.alamkanak.weekview;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class EventDiffTest {
+
+    private static WeekViewEvent event(long id, String name, int startHour, int endHour) {
+        return new WeekViewEvent(id, name, time(startHour), time(endHour));
+    }
+
+    private static Calendar time(int hour) {
+        Calendar time = Calendar.getInstance();
+        time.clear();
+        time.set(2016, Calendar.FEBRUARY, 1, hour, 0);
+        return time;
+    }
+
+    @Test
+    public void unchangedEventKeepsTheOldInstance() {
+        WeekViewEvent oldEvent = event(1, "Meeting", 9, 10);
+        EventDiff diff = new EventDiff();
+        List<WeekViewEvent> merged = diff.merge(Collections.singletonList(oldEvent), Collections.singletonList(event(1, "Meeting", 9, 10)));
+
+        assertEquals(1, merged.size());
+        assertSame(oldEvent, merged.get(0));
+        assertTrue(diff.getRemovedEvents().isEmpty());
+        assertTrue(diff.getAddedEvents().isEmpty());
+    }
+
+    @Test
+    public void changedEventReplacesTheOldOne() {
+        WeekViewEvent oldEvent = event(1, "Meeting", 9, 10);
+        WeekViewEvent newEvent = event(1, "Meeting", 9, 11);
+        EventDiff diff = new EventDiff();
+        List<WeekViewEvent> merged = diff.merge(Collections.singletonList(oldEvent), Collections.singletonList(newEvent));
+
+        assertEquals(Collections.singletonList(newEvent), merged);
+        assertSame(newEvent, merged.get(0));
+        assertEquals(Collections.singletonList(oldEvent), diff.getRemovedEvents());
+        assertSame(newEvent, diff.getAddedEvents().get(0));
+    }
+
+    @Test
+    public void renamedEventIsChanged() {
+        WeekViewEvent oldEvent = event(1, "Meeting", 9, 10);
+        EventDiff diff = new EventDiff();
+        diff.merge(Collections.singletonList(oldEvent), Collections.singletonList(event(1, "Lunch", 9, 10)));
+
+        assertSame(oldEvent, diff.getRemovedEvents().get(0));
+        assertEquals(1, diff.getAddedEvents().size());
+    }
+
+    @Test
+    public void sameInstanceIsTreatedAsChanged() {
+        // The instance may have been modified in place, so it has to be laid out again.
+        WeekViewEvent event = event(1, "Meeting", 9, 10);
+        EventDiff diff = new EventDiff();
+        diff.merge(Collections.singletonList(event), Collections.singletonList(event));
+
+        assertSame(event, diff.getRemovedEvents().get(0));
+        assertSame(event, diff.getAddedEvents().get(0));
+    }
+
+    @Test
+    public void removedAndNewEventsAreCollectedOverSeveralPeriods() {
+        WeekViewEvent kept = event(1, "Kept", 9, 10);
+        WeekViewEvent removed = event(2, "Removed", 11, 12);
+        WeekViewEvent added = event(3, "Added", 13, 14);
+        EventDiff diff = new EventDiff();
+        diff.merge(Arrays.asList(kept, removed), Collections.singletonList(event(1, "Kept", 9, 10)));
+        diff.merge(null, Collections.singletonList(added));
+
+        assertEquals(Collections.singletonList(removed), diff.getRemovedEvents());
+        assertEquals(Collections.singletonList(added), diff.getAddedEvents());
+    }
+}
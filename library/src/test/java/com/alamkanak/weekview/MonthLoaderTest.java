@@ -0,0 +1,62 @@
+package com.alamkanak.weekview;
+
+import org.junit.Test;
+
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MonthLoaderTest {
+    private int mYear;
+    private int mMonth;
+    private final MonthLoader mLoader = new MonthLoader(new MonthLoader.MonthChangeListener() {
+        @Override
+        public List<? extends WeekViewEvent> onMonthChange(int newYear, int newMonth) {
+            mYear = newYear;
+            mMonth = newMonth;
+            return Collections.emptyList();
+        }
+    });
+
+    private static Calendar day(int year, int month, int dayOfMonth) {
+        Calendar day = Calendar.getInstance();
+        day.clear();
+        day.set(year, month, dayOfMonth);
+        return day;
+    }
+
+    @Test
+    public void lastDayOfALongMonthStaysInItsMonth() {
+        Calendar day = day(2016, Calendar.JANUARY, 31);
+        mLoader.onLoad((int) mLoader.toWeekViewPeriodIndex(day));
+
+        assertEquals(2016, mYear);
+        assertEquals(1, mMonth);
+    }
+
+    @Test
+    public void everyDayIsLoadedWithItsMonth() {
+        Calendar day = day(2015, Calendar.DECEMBER, 1);
+        while (day.get(Calendar.YEAR) < 2017) {
+            double index = mLoader.toWeekViewPeriodIndex(day);
+            mLoader.onLoad((int) index);
+            String message = day.getTime().toString();
+            assertEquals(message, day.get(Calendar.YEAR), mYear);
+            assertEquals(message, day.get(Calendar.MONTH) + 1, mMonth);
+            assertTrue(message, index - Math.floor(index) < 1);
+            day.add(Calendar.DATE, 1);
+        }
+    }
+
+    @Test
+    public void firstDayOfAMonthStartsItsPeriod() {
+        double december = mLoader.toWeekViewPeriodIndex(day(2015, Calendar.DECEMBER, 1));
+        double january = mLoader.toWeekViewPeriodIndex(day(2016, Calendar.JANUARY, 1));
+
+        assertEquals(Math.floor(december), december, 0);
+        assertEquals(december + 1, january, 0);
+    }
+}
@@ -0,0 +1,104 @@
+package com.alamkanak.weekview;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class PeriodCacheTest {
+
+    private static List<WeekViewEvent> events(int count) {
+        List<WeekViewEvent> events = new ArrayList<WeekViewEvent>();
+        for (int i = 0; i < count; i++) {
+            events.add(new WeekViewEvent(i, "Event", 2016, 2, 1, 9, 0, 2016, 2, 1, 10, 0));
+        }
+        return events;
+    }
+
+    @Test
+    public void trimEvictsTheLeastRecentlyUsedPeriods() {
+        PeriodCache cache = new PeriodCache(2, 100);
+        cache.put(1, events(1));
+        cache.put(2, events(1));
+        cache.put(3, events(1));
+        cache.get(1);
+        cache.trim(3, 3);
+
+        assertNotNull(cache.peek(1));
+        assertNull(cache.peek(2));
+        assertNotNull(cache.peek(3));
+    }
+
+    @Test
+    public void trimKeepsThePinnedPeriods() {
+        PeriodCache cache = new PeriodCache(1, 100);
+        cache.put(1, events(1));
+        cache.put(2, events(1));
+        cache.put(3, events(1));
+        cache.trim(1, 3);
+
+        assertNotNull(cache.peek(1));
+        assertNotNull(cache.peek(2));
+        assertNotNull(cache.peek(3));
+    }
+
+    @Test
+    public void trimKeepsTheNumberOfEventsWithinItsBound() {
+        PeriodCache cache = new PeriodCache(10, 5);
+        cache.put(1, events(3));
+        cache.put(2, events(3));
+        cache.put(3, events(2));
+        cache.trim(3, 3);
+
+        assertNull(cache.peek(1));
+        assertNotNull(cache.peek(2));
+        assertNotNull(cache.peek(3));
+    }
+
+    @Test
+    public void hitsAndMissesAreCounted() {
+        PeriodCache cache = new PeriodCache(10, 100);
+        cache.put(1, events(1));
+        cache.get(1);
+        cache.get(2);
+        cache.peek(3);
+
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void removeEventsCopiesTheChangedPeriods() {
+        List<WeekViewEvent> events = events(3);
+        List<WeekViewEvent> loadedEvents = Collections.unmodifiableList(events);
+        PeriodCache cache = new PeriodCache(10, 100);
+        cache.put(1, loadedEvents);
+        cache.put(2, events(1));
+
+        List<Integer> changedPeriods = new ArrayList<Integer>();
+        List<WeekViewEvent> removedEvents = new ArrayList<WeekViewEvent>();
+        cache.removeEvents(Collections.singleton(1L), changedPeriods, removedEvents);
+
+        assertEquals(Arrays.asList(1), changedPeriods);
+        assertEquals(Collections.singletonList(events.get(1)), removedEvents);
+        assertEquals(Arrays.asList(events.get(0), events.get(2)), cache.peek(1));
+        assertEquals(3, loadedEvents.size());
+    }
+
+    @Test
+    public void addEventOnlyChangesCachedPeriods() {
+        PeriodCache cache = new PeriodCache(10, 100);
+        cache.put(1, events(1));
+        WeekViewEvent event = events(1).get(0);
+
+        assertEquals(true, cache.addEvent(1, event));
+        assertEquals(false, cache.addEvent(2, event));
+        assertEquals(2, cache.peek(1).size());
+    }
+}
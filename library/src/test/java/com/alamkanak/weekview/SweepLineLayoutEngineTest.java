@@ -0,0 +1,69 @@
+package com.alamkanak.weekview;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class SweepLineLayoutEngineTest {
+    private static final float DELTA = 0.0001f;
+
+    private final EventLayoutEngine mEngine = new SweepLineLayoutEngine();
+    private final float[] mLefts = new float[8];
+    private final float[] mWidths = new float[8];
+
+    private void layout(long[] startTimes, long[] endTimes) {
+        mEngine.computePositions(startTimes, endTimes, startTimes.length, mLefts, mWidths);
+    }
+
+    @Test
+    public void separateEventsTakeTheFullWidth() {
+        layout(new long[] {0, 100}, new long[] {50, 200});
+        assertPosition(0, 0, 1);
+        assertPosition(1, 0, 1);
+    }
+
+    @Test
+    public void touchingEventsDoNotOverlap() {
+        layout(new long[] {0, 50}, new long[] {50, 100});
+        assertPosition(0, 0, 1);
+        assertPosition(1, 0, 1);
+    }
+
+    @Test
+    public void overlappingEventsShareTheWidth() {
+        layout(new long[] {0, 10, 20}, new long[] {100, 100, 100});
+        assertPosition(0, 0, 1 / 3f);
+        assertPosition(1, 1 / 3f, 1 / 3f);
+        assertPosition(2, 2 / 3f, 1 / 3f);
+    }
+
+    @Test
+    public void freedColumnIsReused() {
+        // The first and the last event do not overlap, but both overlap the second one.
+        layout(new long[] {0, 10, 60}, new long[] {50, 100, 120});
+        assertPosition(0, 0, 0.5f);
+        assertPosition(1, 0.5f, 0.5f);
+        assertPosition(2, 0, 0.5f);
+    }
+
+    @Test
+    public void unsortedEventsArePositionedByStartTime() {
+        layout(new long[] {200, 10, 0}, new long[] {300, 100, 50});
+        assertPosition(0, 0, 1);
+        assertPosition(1, 0.5f, 0.5f);
+        assertPosition(2, 0, 0.5f);
+    }
+
+    @Test
+    public void eachCollisionGroupHasItsOwnColumns() {
+        layout(new long[] {0, 0, 100}, new long[] {50, 50, 150});
+        assertPosition(0, 0, 0.5f);
+        assertPosition(1, 0.5f, 0.5f);
+        assertPosition(2, 0, 1);
+    }
+
+    private void assertPosition(int event, float left, float width) {
+        assertEquals("left of event " + event, left, mLefts[event], DELTA);
+        assertEquals("width of event " + event, width, mWidths[event], DELTA);
+    }
+}
@@ -0,0 +1,219 @@
+package com.alamkanak.weekview;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class WeekViewLayoutTest {
+    private static final float DELTA = 0.0001f;
+    private static final int FIRST_DAY = WeekViewUtil.getEpochDay(time(1, 0, 0));
+
+    private final WeekViewLayout mLayout = new WeekViewLayout();
+
+    /**
+     * Get a time in February 2016.
+     */
+    private static Calendar time(int day, int hour, int minute) {
+        Calendar time = Calendar.getInstance();
+        time.clear();
+        time.set(2016, Calendar.FEBRUARY, day, hour, minute);
+        return time;
+    }
+
+    private static WeekViewEvent event(long id, int day, int startHour, int endHour) {
+        return new WeekViewEvent(id, "Event " + id, time(day, startHour, 0), time(day, endHour, 0));
+    }
+
+    private static WeekViewEvent allDayEvent(long id, int day) {
+        return new WeekViewEvent(id, "All-day " + id, null, time(day, 0, 0), time(day, 23, 59), true);
+    }
+
+    private WeekViewLayout.Snapshot layout(WeekViewEvent... events) {
+        return mLayout.buildSnapshot(Collections.singletonList(Arrays.asList(events)));
+    }
+
+    @Test
+    public void overlappingEventsShareTheDay() {
+        WeekViewLayout.Snapshot snapshot = layout(event(1, 1, 9, 11), event(2, 1, 10, 12));
+
+        List<WeekViewLayout.Entry> entries = snapshot.getEntriesOfDay(FIRST_DAY);
+        assertEquals(2, entries.size());
+        assertEntry(entries.get(0), 1, 0, 0.5f, 9 * 60, 11 * 60);
+        assertEntry(entries.get(1), 2, 0.5f, 0.5f, 10 * 60, 12 * 60);
+    }
+
+    @Test
+    public void touchingEventsTakeTheFullWidth() {
+        WeekViewLayout.Snapshot snapshot = layout(event(1, 1, 9, 10), event(2, 1, 10, 11));
+
+        List<WeekViewLayout.Entry> entries = snapshot.getEntriesOfDay(FIRST_DAY);
+        assertEntry(entries.get(0), 1, 0, 1, 9 * 60, 10 * 60);
+        assertEntry(entries.get(1), 2, 0, 1, 10 * 60, 11 * 60);
+    }
+
+    @Test
+    public void eventsAreSortedWithinTheirDay() {
+        WeekViewLayout.Snapshot snapshot = layout(event(1, 2, 14, 15), event(2, 1, 9, 10), event(3, 2, 8, 9));
+
+        assertEquals(2, snapshot.getEntriesOfDay(FIRST_DAY + 1).size());
+        assertEquals(3, snapshot.getEntriesOfDay(FIRST_DAY + 1).get(0).event.getId());
+        assertEquals(1, snapshot.getEntriesOfDay(FIRST_DAY + 1).get(1).event.getId());
+        assertEquals(2, snapshot.getEntries().get(0).event.getId());
+    }
+
+    @Test
+    public void eventAcrossMidnightIsSplitByDay() {
+        WeekViewEvent event = new WeekViewEvent(1, "Night", time(1, 22, 0), time(2, 2, 0));
+        WeekViewLayout.Snapshot snapshot = layout(event);
+
+        WeekViewLayout.Entry first = snapshot.getEntriesOfDay(FIRST_DAY).get(0);
+        WeekViewLayout.Entry second = snapshot.getEntriesOfDay(FIRST_DAY + 1).get(0);
+        assertEntry(first, 1, 0, 1, 22 * 60, 23 * 60 + 59);
+        assertEntry(second, 1, 0, 1, 0, 2 * 60);
+        assertSame(event, first.originalEvent);
+        assertSame(event, second.originalEvent);
+    }
+
+    @Test
+    public void eventEndingAtMidnightStaysOnItsDay() {
+        WeekViewLayout.Snapshot snapshot = layout(new WeekViewEvent(1, "Evening", time(1, 20, 0), time(2, 0, 0)));
+
+        assertEquals(1, snapshot.getEntries().size());
+        assertEquals(1, snapshot.getEntriesOfDay(FIRST_DAY).size());
+        assertNull(snapshot.getEntriesOfDay(FIRST_DAY + 1));
+    }
+
+    @Test
+    public void eventsThatEndBeforeTheyStartAreIgnored() {
+        WeekViewLayout.Snapshot snapshot = layout(event(1, 1, 10, 9), event(2, 1, 10, 10));
+
+        assertTrue(snapshot.getEntries().isEmpty());
+    }
+
+    @Test
+    public void allDayEventsComeLastAndDoNotCollideWithTimedEvents() {
+        WeekViewLayout.Snapshot snapshot = layout(allDayEvent(1, 1), event(2, 1, 0, 1), allDayEvent(3, 1));
+
+        List<WeekViewLayout.Entry> entries = snapshot.getEntriesOfDay(FIRST_DAY);
+        assertEquals(3, entries.size());
+        assertEntry(entries.get(0), 2, 0, 1, 0, 60);
+        assertEquals(0.5f, entries.get(1).width, DELTA);
+        assertEquals(0.5f, entries.get(2).width, DELTA);
+        assertTrue(entries.get(1).originalEvent.isAllDay());
+        assertTrue(snapshot.hasAllDayEvents(FIRST_DAY, 1));
+        assertFalse(snapshot.hasAllDayEvents(FIRST_DAY + 1, 7));
+    }
+
+    @Test
+    public void updateSnapshotRemovesEventsByIdentity() {
+        WeekViewEvent event = event(1, 1, 9, 11);
+        WeekViewEvent other = event(2, 1, 10, 12);
+        WeekViewLayout.Snapshot snapshot = layout(event, other);
+
+        // An equal event that is not the instance that was laid out is not removed.
+        WeekViewLayout.Snapshot unchanged = mLayout.updateSnapshot(snapshot, Collections.singletonList(event(1, 1, 9, 11)), Collections.<WeekViewEvent>emptyList());
+        assertEquals(2, unchanged.getEntries().size());
+
+        WeekViewLayout.Snapshot updated = mLayout.updateSnapshot(snapshot, Collections.singletonList(event), Collections.<WeekViewEvent>emptyList());
+        List<WeekViewLayout.Entry> entries = updated.getEntriesOfDay(FIRST_DAY);
+        assertEquals(1, entries.size());
+        assertEntry(entries.get(0), 2, 0, 1, 10 * 60, 12 * 60);
+
+        // The old snapshot is not changed.
+        assertEquals(2, snapshot.getEntriesOfDay(FIRST_DAY).size());
+        assertEquals(0.5f, snapshot.getEntriesOfDay(FIRST_DAY).get(1).width, DELTA);
+    }
+
+    @Test
+    public void updateSnapshotOnlyLaysOutTheChangedDays() {
+        WeekViewEvent event = event(1, 1, 9, 11);
+        WeekViewLayout.Snapshot snapshot = layout(event, event(2, 2, 9, 10), event(3, 4, 9, 10));
+
+        WeekViewLayout.Snapshot updated = mLayout.updateSnapshot(snapshot, Collections.singletonList(event), Arrays.asList(event(1, 1, 10, 11), event(4, 3, 9, 10)));
+
+        assertNotSame(snapshot.getEntriesOfDay(FIRST_DAY), updated.getEntriesOfDay(FIRST_DAY));
+        assertSame(snapshot.getEntriesOfDay(FIRST_DAY + 1), updated.getEntriesOfDay(FIRST_DAY + 1));
+        assertSame(snapshot.getEntriesOfDay(FIRST_DAY + 3), updated.getEntriesOfDay(FIRST_DAY + 3));
+        assertEquals(4, updated.getEntries().size());
+        assertEntry(updated.getEntriesOfDay(FIRST_DAY).get(0), 1, 0, 1, 10 * 60, 11 * 60);
+        assertEquals(4, updated.getEntriesOfDay(FIRST_DAY + 2).get(0).event.getId());
+    }
+
+    @Test
+    public void updateSnapshotDropsDaysWithoutEvents() {
+        WeekViewEvent event = event(1, 1, 9, 11);
+        WeekViewLayout.Snapshot updated = mLayout.updateSnapshot(layout(event), Collections.singletonList(event), Collections.<WeekViewEvent>emptyList());
+
+        assertNull(updated.getEntriesOfDay(FIRST_DAY));
+        assertTrue(updated.getEntries().isEmpty());
+    }
+
+    @Test
+    public void getDaysOfFindsEventsThatHaveBeenChangedSince() {
+        WeekViewEvent event = new WeekViewEvent(1, "Night", time(1, 22, 0), time(2, 2, 0));
+        WeekViewLayout.Snapshot snapshot = layout(event, event(2, 3, 9, 10));
+        event.setStartTime(time(5, 9, 0));
+        event.setEndTime(time(5, 10, 0));
+
+        List<Integer> days = new ArrayList<Integer>();
+        snapshot.getDaysOf(Collections.singletonList(event), days);
+        assertEquals(Arrays.asList(FIRST_DAY, FIRST_DAY + 1), days);
+    }
+
+    @Test
+    public void drawCommandsAreHitTestedInTheirDay() {
+        mLayout.setSnapshot(layout(event(1, 1, 9, 11), event(2, 1, 10, 12), event(3, 2, 9, 10), allDayEvent(4, 2)));
+        WeekViewLayout.Viewport viewport = new WeekViewLayout.Viewport();
+        viewport.firstDay = FIRST_DAY;
+        viewport.dayCount = 2;
+        viewport.startPixel = 100;
+        viewport.widthPerDay = 200;
+        viewport.columnGap = 10;
+        viewport.hourHeight = 10;
+        viewport.originY = 0;
+        viewport.eventsTop = 50;
+        viewport.allDayEventsTop = 10;
+        viewport.allDayEventHeight = 30;
+        viewport.clipLeft = 100;
+        viewport.width = 510;
+        viewport.height = 1000;
+        mLayout.computeDrawCommands(viewport);
+
+        assertEquals(4, mLayout.getCommandCount());
+        assertEquals(2, mLayout.getCommandEntry(mLayout.getCommandAt(250, 155)).event.getId());
+        assertEquals(1, mLayout.getCommandEntry(mLayout.getCommandAt(150, 155)).event.getId());
+        assertEquals(3, mLayout.getCommandEntry(mLayout.getCommandAt(350, 145)).event.getId());
+        assertEquals(4, mLayout.getCommandEntry(mLayout.getCommandAt(350, 20)).event.getId());
+
+        // Nothing is drawn in the column gap, the time column or after the last day.
+        assertEquals(-1, mLayout.getCommandAt(305, 145));
+        assertEquals(-1, mLayout.getCommandAt(50, 145));
+        assertEquals(-1, mLayout.getCommandAt(520, 145));
+
+        List<Integer> commands = new ArrayList<Integer>();
+        mLayout.getCommandsAt(150, 155, commands);
+        assertEquals(1, commands.size());
+        commands.clear();
+        mLayout.getCommandsAt(250, 155, commands);
+        assertEquals(1, commands.size());
+    }
+
+    private static void assertEntry(WeekViewLayout.Entry entry, long id, float left, float width, float top, float bottom) {
+        assertEquals(id, entry.event.getId());
+        assertEquals(left, entry.left, DELTA);
+        assertEquals(width, entry.width, DELTA);
+        assertEquals(top, entry.top, DELTA);
+        assertEquals(bottom, entry.bottom, DELTA);
+    }
+}